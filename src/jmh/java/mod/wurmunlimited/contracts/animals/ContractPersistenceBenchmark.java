@@ -0,0 +1,73 @@
+package mod.wurmunlimited.contracts.animals;
+
+import com.wurmonline.server.items.Item;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading and saving an inscription contract, for a small contract and one filled to the inscription limit.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ContractPersistenceBenchmark {
+    @Param({ "small", "full" })
+    public String fill;
+    private final InscriptionContractStore store = new InscriptionContractStore();
+    private Item item;
+    private long[] ids;
+    private String encoded;
+
+    @Setup
+    public void setUp() throws Exception {
+        AnimalContractsObjectsFactory factory = new AnimalContractsObjectsFactory();
+        item = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        AnimalContract.setStore(store);
+        AnimalContract.setDelaySaves(false);
+
+        // Creature ids that are close together, as they are on a real server, in the Wurm id layout of
+        // counter << 24 | serverId << 8 | type.
+        Random random = new Random(3);
+        long next = 100000L << 24 | 3L << 8 | 1;
+        ids = new long[0];
+        int limit = fill.equals("small") ? 10 : Integer.MAX_VALUE;
+        while (ids.length < limit) {
+            long[] grown = Arrays.copyOf(ids, ids.length + 1);
+            grown[ids.length] = next;
+            try {
+                store.checkCapacity(grown);
+            } catch (ContractFullException e) {
+                break;
+            }
+            ids = grown;
+            next += (long)(1 + random.nextInt(500)) << 24;
+        }
+        store.save(item, ids);
+        encoded = ContractCodec.encode(ids);
+    }
+
+    @Benchmark
+    public long[] decode() {
+        return ContractCodec.decode(encoded);
+    }
+
+    @Benchmark
+    public String encode() {
+        return ContractCodec.encode(ids);
+    }
+
+    @Benchmark
+    public AnimalContract load() {
+        AnimalContract.invalidate(item.getWurmId());
+        return AnimalContract.getAnimalContract(item);
+    }
+
+    @Benchmark
+    public Item save() throws ContractFullException {
+        store.save(item, ids);
+        return item;
+    }
+}
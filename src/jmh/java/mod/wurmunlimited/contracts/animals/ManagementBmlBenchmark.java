@@ -0,0 +1,56 @@
+package mod.wurmunlimited.contracts.animals;
+
+import com.wurmonline.server.creatures.Creature;
+import com.wurmonline.server.items.Item;
+import com.wurmonline.server.players.Player;
+import com.wurmonline.server.questions.AnimalContractManagementQuestion;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sending the management question for a contract with a full page of animals, with and without the BML cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ManagementBmlBenchmark {
+    @Param({ "false", "true" })
+    public boolean cached;
+    private Player player;
+    private Item item;
+
+    @Setup
+    public void setUp() throws Exception {
+        AnimalContractsObjectsFactory factory = new AnimalContractsObjectsFactory();
+        AnimalContract.setStore(new InscriptionContractStore());
+        AnimalContract.setDelaySaves(false);
+        player = factory.createNewPlayer();
+        item = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        player.getInventory().insertItem(item);
+
+        AnimalContract contract = AnimalContract.getAnimalContract(item);
+        for (int i = 0; i < AnimalContractsMod.getManagementPageSize(); i++) {
+            Creature creature = factory.createNewCreature();
+            for (int j = 0; j < 5; j++) {
+                creature.getStatus().setTraitBit(1 + (i + j * 7) % 40, true);
+            }
+            contract.addCreature(creature);
+        }
+
+        ManagementBmlCache.clear();
+        ManagementBmlCache.setMaxSize(cached ? 128 : 0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        ManagementBmlCache.clear();
+        ManagementBmlCache.setMaxSize(128);
+    }
+
+    @Benchmark
+    public Player sendQuestion() {
+        new AnimalContractManagementQuestion(player, item).sendQuestion();
+        return player;
+    }
+}
@@ -0,0 +1,75 @@
+package mod.wurmunlimited.contracts.animals;
+
+import com.wurmonline.server.creatures.Creature;
+import com.wurmonline.server.creatures.CreatureStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost the pollAge hooks add on top of the hooked call.
+ *
+ * CreatureStatus.pollAge itself ages the creature, so Object.hashCode stands in for it.  "reflection" goes through the
+ * InvocationHandler used by pollage_hook=reflection.
+ *
+ * "bytecodeApproximation" is hand-written Java equivalent to the check that pollage_hook=bytecode inserts at the start
+ * of pollAge, without metrics or slow aging.  No class is woven here, so it shows the cost of the check but not any
+ * difference in how the JIT treats javassist output.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class PollAgeHookBenchmark {
+    @Param({ "true", "false" })
+    public boolean onContract;
+    private Creature creature;
+    private CreatureStatus status;
+    private AnimalContractsMod mod;
+    private Method method;
+    private final Object[] args = new Object[0];
+
+    @Setup
+    public void setUp() throws Exception {
+        AnimalContractsObjectsFactory factory = new AnimalContractsObjectsFactory();
+        creature = factory.createNewCreature();
+        status = creature.getStatus();
+        mod = new AnimalContractsMod();
+        method = Object.class.getMethod("hashCode");
+
+        ProtectedRegistry.clear();
+        Random random = new Random(1);
+        long[] ids = new long[10000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = random.nextLong();
+        }
+        ProtectedRegistry.addAll(ids);
+        if (onContract) {
+            ProtectedRegistry.add(creature.getWurmId());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        ProtectedRegistry.clear();
+    }
+
+    @Benchmark
+    public Object unhooked() {
+        return status.hashCode();
+    }
+
+    @Benchmark
+    public Object bytecodeApproximation() {
+        if (ProtectedRegistry.isProtected(creature.getWurmId())) {
+            return false;
+        }
+        return status.hashCode();
+    }
+
+    @Benchmark
+    public Object reflection() throws Exception {
+        return mod.pollAge(status, method, args);
+    }
+}
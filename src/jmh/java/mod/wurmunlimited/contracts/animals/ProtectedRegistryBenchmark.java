@@ -0,0 +1,58 @@
+package mod.wurmunlimited.contracts.animals;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProtectedRegistry.isProtected at different registry sizes and hit rates, with and without the bloom filter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ProtectedRegistryBenchmark {
+    private static final int LOOKUPS = 1024;
+    @Param({ "1000", "10000", "100000" })
+    public int size;
+    @Param({ "50", "1" })
+    public int hitPercent;
+    @Param({ "true", "false" })
+    public boolean filter;
+    private long[] lookups;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(2);
+        long[] ids = new long[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = random.nextLong();
+        }
+        ProtectedRegistry.setFilterEnabled(filter);
+        ProtectedRegistry.clear();
+        ProtectedRegistry.addAll(ids);
+
+        lookups = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookups[i] = random.nextInt(100) < hitPercent ? ids[random.nextInt(size)] : random.nextLong();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        ProtectedRegistry.clear();
+        ProtectedRegistry.setFilterEnabled(true);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int isProtected() {
+        int found = 0;
+        for (long id : lookups) {
+            if (ProtectedRegistry.isProtected(id)) {
+                ++found;
+            }
+        }
+        return found;
+    }
+}
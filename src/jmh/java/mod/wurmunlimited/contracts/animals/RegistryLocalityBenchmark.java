@@ -0,0 +1,88 @@
+package mod.wurmunlimited.contracts.animals;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProtectedRegistry lookups for every creature on a large map, in zone order and in random order, with one table and
+ * with the registry sharded by id block.
+ *
+ * Zone order is modelled as runs of consecutively numbered creatures, since creatures spawned together are numbered
+ * together and live in the same zones.  The runs themselves are visited in random order.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class RegistryLocalityBenchmark {
+    private static final int ZONE_RUN = 128;
+    // A whole number of runs, so zone order looks up every creature rather than leaving zeroes at the end.
+    private static final int CREATURES = 1600 * ZONE_RUN;
+    @Param({ "1", "256" })
+    public int shards;
+    @Param({ "zone", "random" })
+    public String order;
+    private long[] lookups;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(4);
+        long[] ids = new long[CREATURES];
+        List<Long> protectedIds = new ArrayList<>();
+        for (int i = 0; i < CREATURES; i++) {
+            // Wurm id layout, counter << 24 | serverId << 8 | type.
+            ids[i] = (long)(i + 1) << 24 | 3L << 8 | 1;
+            if (random.nextBoolean()) {
+                protectedIds.add(ids[i]);
+            }
+        }
+        ProtectedRegistry.clear();
+        ProtectedRegistry.setShardCount(shards);
+        ProtectedRegistry.addAll(protectedIds.stream().mapToLong(Long::longValue).toArray());
+
+        lookups = new long[CREATURES];
+        if (order.equals("zone")) {
+            List<Integer> runs = new ArrayList<>();
+            for (int i = 0; i < CREATURES / ZONE_RUN; i++) {
+                runs.add(i);
+            }
+            Collections.shuffle(runs, random);
+            int i = 0;
+            for (int run : runs) {
+                System.arraycopy(ids, run * ZONE_RUN, lookups, i, ZONE_RUN);
+                i += ZONE_RUN;
+            }
+        } else {
+            List<Long> shuffled = new ArrayList<>(CREATURES);
+            for (long id : ids) {
+                shuffled.add(id);
+            }
+            Collections.shuffle(shuffled, random);
+            for (int i = 0; i < CREATURES; i++) {
+                lookups[i] = shuffled.get(i);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        ProtectedRegistry.clear();
+        ProtectedRegistry.setShardCount(1);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CREATURES)
+    public int pollAll() {
+        int found = 0;
+        for (long id : lookups) {
+            if (ProtectedRegistry.isProtected(id)) {
+                ++found;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,77 @@
+package mod.wurmunlimited.contracts.animals;
+
+import com.wurmonline.server.creatures.Traits;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders the trait text for a page of 1,000 creatures, once with the old per-bit loop and once from the trait table.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class TraitRenderingBenchmark {
+    private static final int CREATURES = 1000;
+    @Param({ "100", "30" })
+    public double knowledge;
+    private long[] traits;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        traits = new long[CREATURES];
+        for (int i = 0; i < CREATURES; i++) {
+            // Most animals carry only a handful of traits.
+            long mask = 0;
+            int count = random.nextInt(8);
+            for (int j = 0; j < count; j++) {
+                mask |= 1L << random.nextInt(64);
+            }
+            traits[i] = mask;
+        }
+    }
+
+    @Benchmark
+    public void loop(Blackhole blackhole) {
+        for (long mask : traits) {
+            blackhole.consume(renderLoop(mask, knowledge));
+        }
+    }
+
+    @Benchmark
+    public void table(Blackhole blackhole) {
+        for (long mask : traits) {
+            blackhole.consume(TraitStrings.render(mask, knowledge));
+        }
+    }
+
+    private static String[] renderLoop(long traits, double knowledge) {
+        StringBuilder sb = new StringBuilder();
+        String countString = "";
+        int count = 0;
+        for (int i = 0; i < 64; i++) {
+            if ((traits >> i & 1L) == 1L && knowledge > i) {
+                String traitString = Traits.getTraitString(i);
+                if (!traitString.isEmpty()) {
+                    sb.append(traitString).append("\n");
+                    ++count;
+                }
+            } else if (knowledge <= i) {
+                sb.append("You do not have enough skill to see any more.\n");
+                countString = count + "?";
+                break;
+            }
+        }
+        if (sb.length() == 0)
+            return new String[] { "0", "None" };
+
+        if (countString.isEmpty())
+            countString = Integer.toString(count);
+
+        sb.deleteCharAt(sb.length() - 1);
+        return new String[] { countString, sb.toString() };
+    }
+}
@@ -1,10 +1,13 @@
 package com.wurmonline.server.behaviours;
 
+import com.wurmonline.server.Items;
+import com.wurmonline.server.NoSuchItemException;
 import com.wurmonline.server.creatures.Creature;
 import com.wurmonline.server.items.Item;
 import mod.wurmunlimited.contracts.animals.AnimalContract;
 import mod.wurmunlimited.contracts.animals.AnimalContractsMod;
 import mod.wurmunlimited.contracts.animals.ContractFullException;
+import mod.wurmunlimited.contracts.animals.CreatureContracts;
 import org.gotti.wurmunlimited.modsupport.IdFactory;
 import org.gotti.wurmunlimited.modsupport.actions.ActionPerformer;
 import org.gotti.wurmunlimited.modsupport.actions.BehaviourProvider;
@@ -48,7 +51,9 @@ public class AssignAnimalAction implements ModAction, BehaviourProvider, ActionP
             contract.removeCreature(target);
             performer.getCommunicator().sendNormalServerMessage("You remove " + target.getName() + " from the contract.");
         } else {
-            if (!Methods.isActionAllowed(target, Actions.LEAD)) {
+            if (getOtherContractId(subject, target) != CreatureContracts.NONE) {
+                performer.getCommunicator().sendNormalServerMessage("That animal is already on another contract.");
+            } else if (!Methods.isActionAllowed(target, Actions.LEAD)) {
                 performer.getCommunicator().sendNormalServerMessage("You do not have permission to control that animal.");
             } else {
                 try {
@@ -63,6 +68,23 @@ public class AssignAnimalAction implements ModAction, BehaviourProvider, ActionP
 
     }
 
+    /**
+     * Returns the id of a different contract that target is assigned to, or CreatureContracts.NONE.
+     */
+    static long getOtherContractId(Item contract, Creature target) {
+        long contractId = CreatureContracts.getContractFor(target.getWurmId());
+        if (contractId == CreatureContracts.NONE || contractId == contract.getWurmId()) {
+            return CreatureContracts.NONE;
+        }
+        try {
+            Item other = Items.getItem(contractId);
+            if (AnimalContract.isAnimalContract(other) && AnimalContract.getAnimalContract(other).hasCreature(target)) {
+                return contractId;
+            }
+        } catch (NoSuchItemException ignored) {}
+        return CreatureContracts.NONE;
+    }
+
     @Override
     public short getActionId() {
         return actionId;
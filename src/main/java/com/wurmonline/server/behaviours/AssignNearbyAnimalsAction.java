@@ -0,0 +1,144 @@
+package com.wurmonline.server.behaviours;
+
+import com.wurmonline.server.creatures.Creature;
+import com.wurmonline.server.items.Item;
+import com.wurmonline.server.villages.Village;
+import com.wurmonline.server.zones.VolaTile;
+import com.wurmonline.server.zones.Zones;
+import mod.wurmunlimited.contracts.animals.AnimalContract;
+import mod.wurmunlimited.contracts.animals.CreatureContracts;
+import org.gotti.wurmunlimited.modsupport.actions.*;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class AssignNearbyAnimalsAction implements ModAction, ActionPerformer, BehaviourProvider {
+    private final int contractTemplateId;
+    private final int radius;
+    private final Tiles tiles;
+    private final short actionId;
+    private final ActionEntry actionEntry;
+
+    /**
+     * Where the scan finds tiles.  Zones outside of tests.
+     */
+    interface Tiles {
+        int safeTileX(int x);
+
+        int safeTileY(int y);
+
+        @Nullable VolaTile getTileOrNull(int x, int y, boolean surfaced);
+    }
+
+    private static final Tiles zones = new Tiles() {
+        @Override
+        public int safeTileX(int x) {
+            return Zones.safeTileX(x);
+        }
+
+        @Override
+        public int safeTileY(int y) {
+            return Zones.safeTileY(y);
+        }
+
+        @Override
+        public VolaTile getTileOrNull(int x, int y, boolean surfaced) {
+            return Zones.getTileOrNull(x, y, surfaced);
+        }
+    };
+
+    public AssignNearbyAnimalsAction(int contractTemplateId, int radius) {
+        this(contractTemplateId, radius, zones);
+    }
+
+    AssignNearbyAnimalsAction(int contractTemplateId, int radius, Tiles tiles) {
+        this.contractTemplateId = contractTemplateId;
+        this.radius = radius;
+        this.tiles = tiles;
+
+        actionId = (short)ModActions.getNextActionId();
+
+        actionEntry = new ActionEntryBuilder(actionId, "Assign nearby animals", "assigning", ItemBehaviour.emptyIntArr).build();
+        ModActions.registerAction(actionEntry);
+    }
+
+    @Override
+    public List<ActionEntry> getBehavioursFor(Creature performer, Item subject, Item target) {
+        return getBehavioursFor(performer, target);
+    }
+
+    @Override
+    public List<ActionEntry> getBehavioursFor(Creature performer, Item target) {
+        if (target.getTemplateId() == contractTemplateId && target.getOwnerId() == performer.getWurmId())
+            return Collections.singletonList(actionEntry);
+        return null;
+    }
+
+    @Override
+    public boolean action(Action action, Creature performer, Item subject, Item target, short num, float counter) {
+        return action(action, performer, target, num, counter);
+    }
+
+    @Override
+    public boolean action(Action action, Creature performer, Item target, short num, float counter) {
+        if (num != actionId || target.getTemplateId() != contractTemplateId || target.getOwnerId() != performer.getWurmId())
+            return false;
+
+        AnimalContract contract = AnimalContract.getAnimalContract(target);
+        List<Creature> candidates = new ArrayList<>();
+        int otherContract = 0;
+        int notAllowed = 0;
+
+        // Only look on the performer's deed, if they are standing on one.
+        boolean surfaced = performer.isOnSurface();
+        int centreX = performer.getTileX();
+        int centreY = performer.getTileY();
+        VolaTile performerTile = tiles.getTileOrNull(centreX, centreY, surfaced);
+        Village village = performerTile != null ? performerTile.getVillage() : null;
+
+        for (int x = tiles.safeTileX(centreX - radius); x <= tiles.safeTileX(centreX + radius); ++x) {
+            for (int y = tiles.safeTileY(centreY - radius); y <= tiles.safeTileY(centreY + radius); ++y) {
+                VolaTile tile = tiles.getTileOrNull(x, y, surfaced);
+                if (tile == null || (village != null && tile.getVillage() != village))
+                    continue;
+
+                for (Creature creature : tile.getCreatures()) {
+                    if (!AnimalContract.isValidCreature(creature) || contract.hasCreature(creature.getWurmId()))
+                        continue;
+                    if (AssignAnimalAction.getOtherContractId(target, creature) != CreatureContracts.NONE) {
+                        ++otherContract;
+                    } else if (!Methods.isActionAllowed(creature, Actions.LEAD)) {
+                        ++notAllowed;
+                    } else {
+                        candidates.add(creature);
+                    }
+                }
+            }
+        }
+
+        if (candidates.isEmpty() && otherContract == 0 && notAllowed == 0) {
+            performer.getCommunicator().sendNormalServerMessage("There are no animals nearby to add to the contract.");
+            return true;
+        }
+
+        int added = contract.addCreatures(candidates).length;
+        int noSpace = candidates.size() - added;
+
+        StringBuilder sb = new StringBuilder("You add ").append(added).append(added == 1 ? " animal" : " animals").append(" to the contract.");
+        if (otherContract > 0)
+            sb.append(" ").append(otherContract).append(" already on another contract.");
+        if (notAllowed > 0)
+            sb.append(" ").append(notAllowed).append(" you do not have permission to control.");
+        if (noSpace > 0)
+            sb.append(" ").append(noSpace).append(" would not fit on the contract.");
+        performer.getCommunicator().sendNormalServerMessage(sb.toString());
+        return true;
+    }
+
+    @Override
+    public short getActionId() {
+        return actionId;
+    }
+}
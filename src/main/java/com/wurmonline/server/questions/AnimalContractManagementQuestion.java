@@ -1,54 +1,197 @@
 package com.wurmonline.server.questions;
 
 import com.wurmonline.server.creatures.Creature;
-import com.wurmonline.server.creatures.Traits;
+import com.wurmonline.server.creatures.Creatures;
 import com.wurmonline.server.items.Item;
 import com.wurmonline.server.skills.NoSuchSkillException;
 import com.wurmonline.server.skills.Skill;
 import mod.wurmunlimited.bml.BMLBuilder;
 import mod.wurmunlimited.contracts.animals.AnimalContract;
 import mod.wurmunlimited.contracts.animals.AnimalContractsMod;
+import mod.wurmunlimited.contracts.animals.ManagementBmlCache;
+import mod.wurmunlimited.contracts.animals.TraitStrings;
 
-import java.util.List;
-import java.util.Properties;
+import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class AnimalContractManagementQuestion extends Question {
+    static final List<String> sortOptions = Arrays.asList("Contract order", "Name", "Type", "Traits");
+    static final int SORT_DEFAULT = 0;
+    static final int SORT_NAME = 1;
+    static final int SORT_TYPE = 2;
+    static final int SORT_TRAITS = 3;
+    private final Item contractItem;
     private final AnimalContract contract;
-    private final List<Creature> creatures;
+    private final int pageSize;
+    private final int page;
+    private final int sort;
+    private final String filter;
+    // Only resolved when the page has to be built.
+    private List<Creature> creatures;
+    // The listed creatures in order, which checkbox ids are indices into.  Taken from the cache when the page is.
+    private long[] creatureIds;
 
     public AnimalContractManagementQuestion(Creature responder, Item contract) {
+        this(responder, contract, 0);
+    }
+
+    public AnimalContractManagementQuestion(Creature responder, Item contract, int page) {
+        this(responder, contract, page, SORT_DEFAULT, "");
+    }
+
+    public AnimalContractManagementQuestion(Creature responder, Item contract, int page, int sort, String filter) {
         super(responder, "Manage contract", "", QuestionTypes.MANAGEOBJECTLIST, contract.getWurmId());
+        contractItem = contract;
         this.contract = AnimalContract.getAnimalContract(contract);
-        creatures = this.contract.getAllCreatures();
+        this.sort = sort >= 0 && sort < sortOptions.size() ? sort : SORT_DEFAULT;
+        this.filter = filter.trim();
+        pageSize = AnimalContractsMod.getManagementPageSize();
+        this.page = Math.max(0, page);
+    }
+
+    private List<Creature> getCreatures() {
+        if (creatures == null) {
+            creatures = filterAndSort(contract.getAllCreatures());
+            creatureIds = new long[creatures.size()];
+            for (int i = 0; i < creatureIds.length; i++) {
+                creatureIds[i] = creatures.get(i).getWurmId();
+            }
+        }
+        return creatures;
+    }
+
+    private long[] getCreatureIds() {
+        if (creatureIds == null) {
+            getCreatures();
+        }
+        return creatureIds;
+    }
+
+    private int getPageCount() {
+        return Math.max(1, (getCreatureIds().length + pageSize - 1) / pageSize);
+    }
+
+    private int getPage() {
+        return Math.min(page, getPageCount() - 1);
+    }
+
+    private List<Creature> filterAndSort(List<Creature> all) {
+        List<Creature> list = all;
+        if (!filter.isEmpty()) {
+            String lower = filter.toLowerCase(Locale.ROOT);
+            list = new ArrayList<>();
+            for (Creature creature : all) {
+                if (creature.getName().toLowerCase(Locale.ROOT).contains(lower) ||
+                            creature.getTemplate().getName().toLowerCase(Locale.ROOT).contains(lower)) {
+                    list.add(creature);
+                }
+            }
+        }
+
+        switch (sort) {
+            case SORT_NAME:
+                list.sort(Comparator.comparing(Creature::getName, String.CASE_INSENSITIVE_ORDER));
+                break;
+            case SORT_TYPE:
+                list.sort(Comparator.comparing((Creature c) -> c.getTemplate().getName()).thenComparing(Creature::getName, String.CASE_INSENSITIVE_ORDER));
+                break;
+            case SORT_TRAITS:
+                // Counted once per creature rather than on every comparison.
+                double knowledge = getKnowledge();
+                Map<Creature, Integer> counts = new IdentityHashMap<>();
+                for (Creature creature : list) {
+                    counts.put(creature, TraitStrings.count(creature, knowledge));
+                }
+                list.sort(Comparator.comparing((Creature c) -> counts.get(c)).reversed());
+                break;
+        }
+        return list;
     }
 
     @Override
     public void answer(Properties properties) {
         setAnswer(properties);
-        String val = properties.getProperty("update");
-        if (val != null && val.equals("true")) {
-            for (int i = 0; i < creatures.size(); i++) {
-                val = properties.getProperty(Integer.toString(i));
-                if (val != null && val.equals("true")) {
-                    contract.removeCreature(creatures.get(i));
-                    getResponder().getCommunicator().sendNormalServerMessage("You remove " + creatures.get(i).getName() + " from the contract.");
+        if (wasSelected(properties, "update")) {
+            // Checkbox ids are indices into the filtered and sorted list this question was sent with,
+            // so they still map to the right creatures on any page.
+            long[] ids = getCreatureIds();
+            AnimalContract current = AnimalContract.getAnimalContract(contractItem);
+            Creatures allCreatures = Creatures.getInstance();
+            List<Creature> toRemove = new ArrayList<>();
+            int first = getPage() * pageSize;
+            int last = Math.min(ids.length, first + pageSize);
+            for (int i = first; i < last; i++) {
+                if (wasSelected(properties, Integer.toString(i))) {
+                    Creature creature = allCreatures.getCreatureOrNull(ids[i]);
+                    if (creature != null && current.hasCreature(creature)) {
+                        toRemove.add(creature);
+                    }
                 }
             }
+
+            current.removeCreatures(toRemove);
+            for (Creature creature : toRemove) {
+                getResponder().getCommunicator().sendNormalServerMessage("You remove " + creature.getName() + " from the contract.");
+            }
+        } else if (wasSelected(properties, "next") || wasSelected(properties, "prev") || wasSelected(properties, "apply")) {
+            int newSort = sort;
+            try {
+                newSort = Integer.parseInt(properties.getProperty("sort", Integer.toString(sort)));
+            } catch (NumberFormatException ignored) {}
+            String newFilter = properties.getProperty("filter", filter).trim();
+
+            int newPage = 0;
+            if (newSort == sort && newFilter.equals(filter)) {
+                if (wasSelected(properties, "next")) {
+                    newPage = getPage() + 1;
+                } else if (wasSelected(properties, "prev")) {
+                    newPage = getPage() - 1;
+                }
+            }
+            new AnimalContractManagementQuestion(getResponder(), contractItem, newPage, newSort, newFilter).sendQuestion();
         }
     }
 
+    private static boolean wasSelected(Properties properties, String id) {
+        String val = properties.getProperty(id);
+        return val != null && val.equals("true");
+    }
+
     @Override
     public void sendQuestion() {
-        AtomicInteger creatureId = new AtomicInteger(0);
+        double knowledge = getKnowledge();
+        // Rendering only depends on which trait bits the viewer can see, so viewers in the same bracket share BML.
+        int bracket = knowledge < 0 ? -1 : (int)Math.min(64, Math.ceil(knowledge));
+        long contractId = contractItem.getWurmId();
+        String key = contractId + ":" + page + ":" + pageSize + ":" + sort + ":" + bracket + ":" + filter;
+        // Creatures are only resolved, filtered and sorted if the page is not cached.
+        ManagementBmlCache.Page cached = ManagementBmlCache.get(contract, contractId, key, id,
+                questionId -> new ManagementBmlCache.Page(buildBml(questionId, knowledge), getCreatureIds()));
+        creatureIds = cached.getCreatureIds();
 
-        String bml = new BMLBuilder(id)
+        getResponder().getCommunicator().sendBml(350, 400, true, true, cached.getBml(), 200, 200, 200, title);
+    }
+
+    private String buildBml(int questionId, double knowledge) {
+        List<Creature> listed = getCreatures();
+        int currentPage = getPage();
+        int first = currentPage * pageSize;
+        // Only the visible page has its trait strings built.
+        List<Creature> visible = listed.subList(first, Math.min(listed.size(), first + pageSize));
+        int pageCount = getPageCount();
+        AtomicInteger creatureId = new AtomicInteger(first);
+
+        return new BMLBuilder(questionId)
                              .header("Animal List")
                              .text("Hover over the number of traits to see the actual traits.")
+                             .harray(b -> b.label("Filter:").entry("filter", filter)
+                                                   .label("Sort:").dropdown("sort", sortOptions, sort)
+                                                   .button("apply", "Apply"))
+                             .If(pageCount > 1, b -> b.text("Page " + (currentPage + 1) + " of " + pageCount + " (" + listed.size() + " animals)"))
                              .newLine()
-                             .table(new String[] { "Name", "Type", "Colour", "Traits", "Remove?"}, creatures,
+                             .table(new String[] { "Name", "Type", "Colour", "Traits", "Remove?"}, visible,
                                      (creature, b) -> {
-                                                     String[] traitString = getTraitStringFor(creature);
+                                                     String[] traitString = getTraitStringFor(creature, knowledge);
                                                      String traitNumber = traitString[0];
                                                      String traitText = traitString[1];
                                               return b.label(creature.getName())
@@ -57,51 +200,32 @@ public class AnimalContractManagementQuestion extends Question {
                                                       .text(traitNumber).hover(traitText)
                                                       .checkbox(Integer.toString(creatureId.getAndIncrement()));
                              })
-                             .If(creatures.isEmpty(), b -> b.newLine().text("No creatures are assigned."))
+                             .If(listed.isEmpty(), b -> b.newLine().text(filter.isEmpty() ? "No creatures are assigned." : "No creatures match the filter."))
                              .newLine()
-                             .harray(b -> b.button("update", "Send"))
+                             .harray(b -> b.If(currentPage > 0, b2 -> b2.button("prev", "Previous"))
+                                                   .button("update", "Send")
+                                                   .If(currentPage < pageCount - 1, b2 -> b2.button("next", "Next")))
                              .build();
-
-
-        getResponder().getCommunicator().sendBml(350, 400, true, true, bml, 200, 200, 200, title);
     }
 
-    private String[] getTraitStringFor(Creature creature) {
-        double knowledge = 100;
+    private double getKnowledge() {
         if (AnimalContractsMod.useAnimalHusbandry()) {
             try {
                 Skill breeding = getResponder().getSkills().getSkill(10085);
-                knowledge = breeding.getKnowledge(0.0D);
+                double knowledge = breeding.getKnowledge(0.0D);
                 if (knowledge < 20.0D) {
-                    return new String[] { "???", "You do not have enough skill to see traits." };
+                    return -1;
                 }
-                knowledge -= 20.0D;
+                return knowledge - 20.0D;
             } catch (NoSuchSkillException ignored) {}
         }
+        return 100;
+    }
 
-        StringBuilder sb = new StringBuilder();
-        String countString = "";
-        int count = 0;
-        for (int i = 0; i < 64; i++) {
-            if (creature.hasTrait(i) && knowledge > i) {
-                String traitString = Traits.getTraitString(i);
-                if (!traitString.isEmpty()) {
-                    sb.append(traitString).append("\n");
-                    ++count;
-                }
-            } else if (knowledge <= i) {
-                sb.append("You do not have enough skill to see any more.\n");
-                countString = count + "?";
-                break;
-            }
+    private static String[] getTraitStringFor(Creature creature, double knowledge) {
+        if (knowledge < 0) {
+            return new String[] { "???", "You do not have enough skill to see traits." };
         }
-        if (sb.length() == 0)
-            return new String[] { "0", "None" };
-
-        if (countString.isEmpty())
-            countString = Integer.toString(count);
-
-        sb.deleteCharAt(sb.length() - 1);
-        return new String[] { countString, sb.toString() };
+        return TraitStrings.render(creature, knowledge);
     }
 }
@@ -0,0 +1,92 @@
+package mod.wurmunlimited.contracts.animals;
+
+import com.wurmonline.server.creatures.Creature;
+import com.wurmonline.server.creatures.CreatureStatus;
+import com.wurmonline.server.creatures.Creatures;
+
+import java.util.logging.Logger;
+
+/**
+ * Keeps the ageFrozen flag woven into CreatureStatus in step with ProtectedRegistry when pollage_hook=flag.
+ *
+ * In that mode the pollAge call sites in Creature check the flag and skip the call, so protected creatures cost one
+ * field read per poll and no hook runs at all.  ProtectedRegistry sets the flag on loaded creatures in the same
+ * critical section that publishes the change, so the flag always ends up matching the registry.  A creature that was
+ * not loaded at the time has SYNCED_FIELD unset, and its first poll calls sync to read the flag from the registry.
+ */
+public final class AgeFreeze {
+    private static final Logger logger = Logger.getLogger(AgeFreeze.class.getName());
+    static final String FIELD = "ageFrozen";
+    static final String SYNCED_FIELD = "ageFrozenSynced";
+    private static boolean enabled = false;
+
+    /**
+     * Woven onto CreatureStatus along with FIELD and SYNCED_FIELD.  setAgeFrozen sets both.
+     */
+    public interface Freezable {
+        void setAgeFrozen(boolean frozen);
+    }
+
+    private AgeFreeze() {}
+
+    static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Source of the setAgeFrozen method woven into CreatureStatus.
+     */
+    static String methodSource() {
+        return "public void setAgeFrozen(boolean frozen) { this." + FIELD + " = frozen; this." + SYNCED_FIELD + " = true; }";
+    }
+
+    /**
+     * Called from the woven pollAge call sites for creatures whose flag has not been set yet.
+     */
+    public static void sync(CreatureStatus status, long creatureId) {
+        synchronized (ProtectedRegistry.writeLock) {
+            setFrozen(status, ProtectedRegistry.isProtected(creatureId));
+        }
+    }
+
+    /**
+     * Must be called holding ProtectedRegistry.writeLock.
+     */
+    static void setFrozen(long creatureId, boolean frozen) {
+        if (!enabled) {
+            return;
+        }
+        Creature creature = Creatures.getInstance().getCreatureOrNull(creatureId);
+        if (creature != null) {
+            setFrozen(creature.getStatus(), frozen);
+        }
+    }
+
+    /**
+     * Must be called holding ProtectedRegistry.writeLock.
+     */
+    static void setFrozen(long[] creatureIds, boolean frozen) {
+        if (!enabled) {
+            return;
+        }
+        Creatures creatures = Creatures.getInstance();
+        for (long creatureId : creatureIds) {
+            Creature creature = creatures.getCreatureOrNull(creatureId);
+            if (creature != null) {
+                setFrozen(creature.getStatus(), frozen);
+            }
+        }
+    }
+
+    private static void setFrozen(CreatureStatus status, boolean frozen) {
+        if (!(status instanceof Freezable)) {
+            logger.severe("Could not set " + FIELD + " on CreatureStatus, was it woven?");
+            throw new RuntimeException("CreatureStatus does not implement " + Freezable.class.getName() + ".");
+        }
+        ((Freezable)status).setAgeFrozen(frozen);
+    }
+}
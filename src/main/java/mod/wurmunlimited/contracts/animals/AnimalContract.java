@@ -1,94 +1,459 @@
 package mod.wurmunlimited.contracts.animals;
 
+import com.wurmonline.server.Items;
+import com.wurmonline.server.NoSuchItemException;
 import com.wurmonline.server.creatures.Creature;
 import com.wurmonline.server.creatures.Creatures;
-import com.wurmonline.server.creatures.NoSuchCreatureException;
-import com.wurmonline.server.items.InscriptionData;
 import com.wurmonline.server.items.Item;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 import java.util.logging.Logger;
 
 public class AnimalContract {
     private static final Logger logger = Logger.getLogger(AnimalContract.class.getName());
-    private static final int MAX_INSCRIPTION_LENGTH = 500;
+    static final ContractCache cache = new ContractCache(256);
+    private static ContractStore store = new InscriptionContractStore();
+    private static ContractIndex index = new ContractIndex(null);
+    // Contracts with changes not yet written to the store, when saves are delayed.
+    private static final Map<Long, AnimalContract> dirty = new LinkedHashMap<>();
+    private static boolean delaySaves = false;
+    private static int maxCreatures = 1000;
     private final Item contractItem;
-    private List<Creature> creatures = new ArrayList<>();
+    // Sorted, so membership is a binary search.  Ids are kept even if the creature is not currently loaded.
+    private long[] creatureIds;
+    private String revision;
 
     private AnimalContract(Item item) {
         assert isAnimalContract(item);
 
         contractItem = item;
-
-        InscriptionData inscription = item.getInscription();
-        if (inscription == null) {
-            item.setInscription("", "");
-        } else {
-            String str = inscription.getInscription();
-            if (!str.isEmpty()) {
-                String[] lines = str.split("\n");
-
-                for (String line : lines) {
-                    try {
-                        creatures.add(Creatures.getInstance().getCreature(Long.parseLong(line)));
-                    } catch (NumberFormatException e) {
-                        logger.warning("Invalid creature id on animal contract - \"" + line + "\"");
-                    } catch (NoSuchCreatureException ignored) {
-                    }
-                    // Creature probably died.
-                }
-            }
-        }
+        // Taken before loading, so if a write lands in between, e.g. while prewarming, this instance is never
+        // mistaken for a current one.
+        revision = store.revision(item);
+        long start = ContractMetrics.startTimer();
+        creatureIds = store.load(item).clone();
+        ContractMetrics.record(ContractMetrics.loads, start);
+        Arrays.sort(creatureIds);
     }
 
     public void addCreature(@NotNull Creature creature) throws ContractFullException {
         if (!isValidCreature(creature)) {
             return;
         }
-        creatures.add(creature);
+        long id = creature.getWurmId();
+        if (hasCreature(id)) {
+            return;
+        }
+        if (creatureIds.length >= maxCreatures) {
+            throw new ContractFullException("Contract already has the maximum number of animals.");
+        }
+
+        long[] previous = creatureIds;
+        long[] updated = withId(previous, id);
+        creatureIds = updated;
         try {
-            saveContract();
+            if (delaySaves) {
+                store.checkCapacity(updated);
+                markDirty();
+            } else {
+                long start = ContractMetrics.startTimer();
+                store.add(contractItem, updated, id);
+                ContractMetrics.record(ContractMetrics.saves, start);
+                saved();
+            }
         } catch (ContractFullException e) {
-            creatures.remove(creature);
+            creatureIds = previous;
             throw e;
         }
-        AnimalContractsMod.addProtectedCreature(creature);
+        ManagementBmlCache.contractChanged(contractItem.getWurmId());
+        ProtectedRegistry.add(id);
+        CreatureContracts.put(id, contractItem.getWurmId());
+    }
+
+    /**
+     * Adds as many of the valid creatures as will fit with a single save.  Returns the ids that were added.
+     */
+    public long[] addCreatures(Collection<Creature> toAdd) {
+        LongHashSet candidates = new LongHashSet(toAdd.size());
+        for (Creature creature : toAdd) {
+            if (isValidCreature(creature) && !hasCreature(creature.getWurmId())) {
+                candidates.add(creature.getWurmId());
+            }
+        }
+        if (candidates.isEmpty()) {
+            return new long[0];
+        }
+
+        long[] added = candidates.toArray();
+        Arrays.sort(added);
+        if (creatureIds.length + added.length > maxCreatures) {
+            added = Arrays.copyOf(added, Math.max(0, maxCreatures - creatureIds.length));
+            if (added.length == 0) {
+                return added;
+            }
+        }
+        long[] updated = new long[creatureIds.length + added.length];
+        System.arraycopy(creatureIds, 0, updated, 0, creatureIds.length);
+        System.arraycopy(added, 0, updated, creatureIds.length, added.length);
+        Arrays.sort(updated);
+
+        try {
+            store.checkCapacity(updated);
+        } catch (ContractFullException e) {
+            // Not everything fits, so add one at a time until it is full.
+            updated = creatureIds;
+            int count = 0;
+            for (long id : added) {
+                long[] next = withId(updated, id);
+                try {
+                    store.checkCapacity(next);
+                } catch (ContractFullException full) {
+                    break;
+                }
+                updated = next;
+                ++count;
+            }
+            added = Arrays.copyOf(added, count);
+            if (count == 0) {
+                return added;
+            }
+        }
+
+        creatureIds = updated;
+        persist();
+        ProtectedRegistry.addAll(added);
+        long contractId = contractItem.getWurmId();
+        for (long id : added) {
+            CreatureContracts.put(id, contractId);
+        }
+        return added;
+    }
+
+    private static long[] withId(long[] ids, long id) {
+        int idx = -Arrays.binarySearch(ids, id) - 1;
+        long[] updated = new long[ids.length + 1];
+        System.arraycopy(ids, 0, updated, 0, idx);
+        updated[idx] = id;
+        System.arraycopy(ids, idx, updated, idx + 1, ids.length - idx);
+        return updated;
     }
 
     public boolean hasCreature(Creature creature) {
-        return creatures.contains(creature);
+        return hasCreature(creature.getWurmId());
+    }
+
+    public boolean hasCreature(long creatureId) {
+        return Arrays.binarySearch(creatureIds, creatureId) >= 0;
     }
 
     public void removeCreature(Creature creature) {
-        creatures.remove(creature);
+        long id = creature.getWurmId();
+        int idx = Arrays.binarySearch(creatureIds, id);
+        if (idx < 0) {
+            return;
+        }
+
+        long[] updated = new long[creatureIds.length - 1];
+        System.arraycopy(creatureIds, 0, updated, 0, idx);
+        System.arraycopy(creatureIds, idx + 1, updated, idx, updated.length - idx);
+        creatureIds = updated;
+        ManagementBmlCache.contractChanged(contractItem.getWurmId());
+        if (delaySaves) {
+            markDirty();
+        } else {
+            long start = ContractMetrics.startTimer();
+            store.remove(contractItem, updated, id);
+            ContractMetrics.record(ContractMetrics.saves, start);
+            saved();
+        }
+        ProtectedRegistry.remove(id);
+        CreatureContracts.remove(id, contractItem.getWurmId());
+    }
+
+    /**
+     * Removes several creatures with a single save.
+     */
+    public void removeCreatures(Collection<Creature> toRemove) {
+        long[] ids = new long[toRemove.size()];
+        int i = 0;
+        for (Creature creature : toRemove) {
+            ids[i++] = creature.getWurmId();
+        }
+        removeCreatureIds(ids);
+    }
+
+    /**
+     * Removes the given creatures with a single save and returns how many of them were on this contract.
+     */
+    int removeCreatureIds(long[] ids) {
+        LongHashSet toRemove = new LongHashSet(ids.length);
+        for (long id : ids) {
+            toRemove.add(id);
+        }
+
+        long[] updated = new long[creatureIds.length];
+        long[] removed = new long[creatureIds.length];
+        int kept = 0;
+        int removedCount = 0;
+        for (long id : creatureIds) {
+            if (toRemove.contains(id)) {
+                removed[removedCount++] = id;
+            } else {
+                updated[kept++] = id;
+            }
+        }
+        if (removedCount == 0) {
+            return 0;
+        }
+
+        creatureIds = Arrays.copyOf(updated, kept);
+        persist();
+        removed = Arrays.copyOf(removed, removedCount);
+        ProtectedRegistry.removeAll(removed);
+        long contractId = contractItem.getWurmId();
+        for (long id : removed) {
+            CreatureContracts.remove(id, contractId);
+        }
+        return removedCount;
+    }
+
+    /**
+     * Removes every creature with a single save and returns their ids.  The ids are left in the ProtectedRegistry,
+     * so that several contracts can be released and removed from it in one batch.
+     */
+    long[] releaseAll() {
+        long[] released = creatureIds;
+        if (released.length == 0) {
+            return released;
+        }
+
+        creatureIds = new long[0];
+        persist();
+        long contractId = contractItem.getWurmId();
+        for (long id : released) {
+            CreatureContracts.remove(id, contractId);
+        }
+        return released;
+    }
+
+    public int getCreatureCount() {
+        return creatureIds.length;
+    }
+
+    public long[] getCreatureIds() {
+        return creatureIds.clone();
+    }
+
+    /**
+     * Writes the full id list, or marks the contract dirty if saves are delayed.  Callers must have checked capacity.
+     */
+    private void persist() {
+        ManagementBmlCache.contractChanged(contractItem.getWurmId());
+        if (delaySaves) {
+            markDirty();
+            return;
+        }
+        long start = ContractMetrics.startTimer();
         try {
-            saveContract();
-        } catch (ContractFullException ignored) {}
-        // ^ Shouldn't ever happen.
-        AnimalContractsMod.removeProtectedCreature(creature);
-    }
-
-    private void saveContract() throws ContractFullException {
-        StringBuilder inscription = new StringBuilder();
-        for (Creature creature : creatures) {
-            inscription.append(creature.getWurmId()).append("\n");
-            if (inscription.length() > MAX_INSCRIPTION_LENGTH) {
-                throw new ContractFullException("Contract already has too many values.");
+            store.save(contractItem, creatureIds);
+            ContractMetrics.record(ContractMetrics.saves, start);
+        } catch (ContractFullException e) {
+            logger.warning("Could not save animal contract (" + contractItem.getWurmId() + ") as it is too full.");
+        }
+        saved();
+    }
+
+    private void saved() {
+        indexed();
+        revision = store.revision(contractItem);
+        cache.put(contractItem.getWurmId(), this);
+    }
+
+    /**
+     * Adds the contract to the index once it has animals, which starts its term if contracts expire.
+     */
+    private void indexed() {
+        long contractId = contractItem.getWurmId();
+        if (creatureIds.length != 0 && !index.contains(contractId)) {
+            long deadline = ContractExpiry.newDeadline(System.currentTimeMillis());
+            index.add(contractId, deadline);
+            ContractExpiry.schedule(contractId, deadline);
+        }
+    }
+
+    private void markDirty() {
+        indexed();
+        synchronized (dirty) {
+            dirty.put(contractItem.getWurmId(), this);
+        }
+    }
+
+    /**
+     * Writes all contracts with delayed changes to the store, once each.
+     */
+    static void flush() {
+        List<AnimalContract> toSave;
+        synchronized (dirty) {
+            if (dirty.isEmpty()) {
+                return;
+            }
+            toSave = new ArrayList<>(dirty.values());
+            dirty.clear();
+        }
+
+        for (AnimalContract contract : toSave) {
+            long start = ContractMetrics.startTimer();
+            try {
+                store.save(contract.contractItem, contract.creatureIds);
+                ContractMetrics.record(ContractMetrics.saves, start);
+            } catch (ContractFullException e) {
+                logger.warning("Could not save animal contract (" + contract.contractItem.getWurmId() + ") as it is too full.");
             }
+            contract.saved();
         }
-        if (inscription.length() != 0)
-            inscription.deleteCharAt(inscription.length() - 1);
-        contractItem.setInscription(inscription.toString(), "");
     }
 
+    static int getDirtyCount() {
+        synchronized (dirty) {
+            return dirty.size();
+        }
+    }
+
+    static void setMaxCreatures(int max) {
+        maxCreatures = max;
+    }
+
+    public static int getMaxCreatures() {
+        return maxCreatures;
+    }
+
+    static void setDelaySaves(boolean delay) {
+        if (!delay) {
+            flush();
+        }
+        delaySaves = delay;
+    }
+
+    /**
+     * Whether this instance still reflects the stored contract, i.e. nothing else has written to it since it was
+     * loaded or last saved.
+     */
+    boolean isCurrentFor(Item item) {
+        return item == contractItem && revision.equals(store.revision(item));
+    }
+
+    /**
+     * Resolves the assigned creatures that are currently loaded.  Ids of creatures that are not found are left on
+     * the contract.
+     */
     public List<Creature> getAllCreatures() {
-        return new ArrayList<>(creatures);
+        List<Creature> creatures = new ArrayList<>(creatureIds.length);
+        Creatures allCreatures = Creatures.getInstance();
+        for (long id : creatureIds) {
+            Creature creature = allCreatures.getCreatureOrNull(id);
+            if (creature != null) {
+                creatures.add(creature);
+            }
+        }
+        return creatures;
+    }
+
+    static void setStore(ContractStore contractStore) {
+        store = contractStore;
+        cache.clear();
+    }
+
+    static ContractStore getStore() {
+        return store;
+    }
+
+    static ContractIndex getIndex() {
+        return index;
+    }
+
+    static void setIndex(ContractIndex contractIndex) {
+        index = contractIndex;
+    }
+
+    /**
+     * Reads the stored creature ids without resolving creatures or building an AnimalContract.
+     */
+    static long[] loadCreatureIds(Item item) {
+        long start = ContractMetrics.startTimer();
+        long[] ids = store.load(item);
+        ContractMetrics.record(ContractMetrics.loads, start);
+        return ids;
     }
 
     public static AnimalContract getAnimalContract(Item item) {
-        return new AnimalContract(item);
+        synchronized (dirty) {
+            AnimalContract pending = dirty.get(item.getWurmId());
+            if (pending != null && pending.contractItem == item) {
+                return pending;
+            }
+        }
+        AnimalContract contract = cache.get(item);
+        if (contract == null) {
+            contract = new AnimalContract(item);
+            cache.put(item.getWurmId(), contract);
+        }
+        return contract;
+    }
+
+    public static void invalidate(long contractId) {
+        cache.invalidate(contractId);
+        ManagementBmlCache.contractChanged(contractId);
+    }
+
+    /**
+     * Called from Items.destroyItem for every item destroyed on the server, so anything that is not a known contract
+     * returns before any other work is done.
+     */
+    public static void contractDestroyed(long contractId) {
+        if (!index.contains(contractId) && !cache.contains(contractId)) {
+            synchronized (dirty) {
+                if (!dirty.containsKey(contractId)) {
+                    return;
+                }
+            }
+        }
+        releaseDestroyed(contractId);
+        synchronized (dirty) {
+            dirty.remove(contractId);
+        }
+        cache.invalidate(contractId);
+        store.delete(contractId);
+        index.remove(contractId);
+        ContractExpiry.cancel(contractId);
+        ManagementBmlCache.contractDestroyed(contractId);
+    }
+
+    /**
+     * Stops protecting the creatures of a contract that is being destroyed, and forgets which contract they were on.
+     * The item still exists at this point, so its creatures can be read before the stored data is deleted.
+     */
+    private static void releaseDestroyed(long contractId) {
+        Item item;
+        try {
+            item = Items.getItem(contractId);
+        } catch (NoSuchItemException e) {
+            return;
+        }
+        if (!isAnimalContract(item)) {
+            return;
+        }
+        AnimalContract contract = getAnimalContract(item);
+
+        LongHashSet released = new LongHashSet();
+        for (long id : contract.creatureIds) {
+            long current = CreatureContracts.getContractFor(id);
+            if (current == contractId || current == CreatureContracts.NONE) {
+                released.add(id);
+            }
+            CreatureContracts.remove(id, contractId);
+        }
+        ProtectedRegistry.removeAll(released.toArray());
     }
 
     public static boolean isAnimalContract(Item item) {
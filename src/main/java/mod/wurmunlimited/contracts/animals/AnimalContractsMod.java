@@ -4,8 +4,10 @@ import com.wurmonline.server.Items;
 import com.wurmonline.server.NoSuchItemException;
 import com.wurmonline.server.Server;
 import com.wurmonline.server.behaviours.AssignAnimalAction;
+import com.wurmonline.server.behaviours.AssignNearbyAnimalsAction;
 import com.wurmonline.server.behaviours.BehaviourList;
 import com.wurmonline.server.behaviours.ManageAnimalContractAction;
+import com.wurmonline.server.creatures.Communicator;
 import com.wurmonline.server.creatures.Creature;
 import com.wurmonline.server.creatures.CreatureStatus;
 import com.wurmonline.server.creatures.Creatures;
@@ -16,6 +18,14 @@ import com.wurmonline.server.items.Item;
 import com.wurmonline.server.items.ItemTypes;
 import com.wurmonline.shared.constants.IconConstants;
 import com.wurmonline.shared.constants.ItemMaterials;
+import javassist.CannotCompileException;
+import javassist.CtClass;
+import javassist.CtField;
+import javassist.CtMethod;
+import javassist.CtNewMethod;
+import javassist.NotFoundException;
+import javassist.expr.ExprEditor;
+import javassist.expr.MethodCall;
 import org.gotti.wurmunlimited.modloader.classhooks.HookManager;
 import org.gotti.wurmunlimited.modloader.interfaces.*;
 import org.gotti.wurmunlimited.modsupport.ItemTemplateBuilder;
@@ -25,22 +35,40 @@ import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.HashSet;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
-public class AnimalContractsMod implements WurmServerMod, Configurable, PreInitable, ItemTemplatesCreatedListener, ServerStartedListener {
+public class AnimalContractsMod implements WurmServerMod, Configurable, PreInitable, ItemTemplatesCreatedListener, ServerStartedListener, ServerPollListener, ServerShutdownListener, PlayerMessageListener {
     private static final Logger logger = Logger.getLogger(AnimalContractsMod.class.getName());
     private static int contractTemplateId;
     private int contractPrice = 1000;
     private boolean updateTraders = false;
     private boolean contractsOnTraders = true;
     private static boolean useAnimalHusbandryForTraits = false;
-    private static Set<Creature> protectedCreatures = new HashSet<>();
+    private static int managementPageSize = 50;
+    private String pollAgeHook = "bytecode";
+    private int contractCacheSize = 256;
+    private String contractStorage = "expanding";
+    private boolean rebuildContractIndex = false;
+    private int prewarmThreads = 0;
+    private int bulkAssignRadius = 5;
+    private long cleanupInterval = TimeUnit.SECONDS.toMillis(60);
+    private long nextCleanup = 0;
+    private long saveInterval = 0;
+    private long nextSave = 0;
+    private long metricsLogInterval = TimeUnit.SECONDS.toMillis(300);
+    private long nextMetricsLog = 0;
     private static Field statusHolder;
+    private static Method slowAge;
 
     public static int getContractTemplateId() {
         return contractTemplateId;
@@ -50,14 +78,8 @@ public class AnimalContractsMod implements WurmServerMod, Configurable, PreInita
         return useAnimalHusbandryForTraits;
     }
 
-    static void addProtectedCreature(Creature creature) {
-        if (AnimalContract.isValidCreature(creature)) {
-            protectedCreatures.add(creature);
-        }
-    }
-
-    static void removeProtectedCreature(Creature creature) {
-        protectedCreatures.remove(creature);
+    public static int getManagementPageSize() {
+        return managementPageSize;
     }
 
     @Override
@@ -82,6 +104,131 @@ public class AnimalContractsMod implements WurmServerMod, Configurable, PreInita
         } catch (NumberFormatException e) {
             logger.warning("Invalid value for use_animal_husbandry_for_traits, using default.");
         }
+        try {
+            contractCacheSize = Integer.parseInt(properties.getProperty("contract_cache_size", Integer.toString(contractCacheSize)));
+        } catch (NumberFormatException e) {
+            logger.warning("Invalid value for contract_cache_size, using default.");
+        }
+        AnimalContract.cache.setMaxSize(contractCacheSize);
+        String storage = properties.getProperty("contract_storage", contractStorage);
+        if (storage.equals("inscription") || storage.equals("expanding") || storage.equals("database")) {
+            contractStorage = storage;
+        } else {
+            logger.warning("Invalid value for contract_storage, using default.");
+        }
+        try {
+            AnimalContract.setMaxCreatures(Integer.parseInt(properties.getProperty("max_animals_per_contract", Integer.toString(AnimalContract.getMaxCreatures()))));
+        } catch (NumberFormatException e) {
+            logger.warning("Invalid value for max_animals_per_contract, using default.");
+        }
+        try {
+            rebuildContractIndex = Boolean.parseBoolean(properties.getProperty("rebuild_contract_index"));
+        } catch (NumberFormatException e) {
+            logger.warning("Invalid value for rebuild_contract_index, using default.");
+        }
+        try {
+            prewarmThreads = Integer.parseInt(properties.getProperty("prewarm_threads", Integer.toString(prewarmThreads)));
+        } catch (NumberFormatException e) {
+            logger.warning("Invalid value for prewarm_threads, using default.");
+        }
+        try {
+            cleanupInterval = TimeUnit.SECONDS.toMillis(Long.parseLong(properties.getProperty("cleanup_interval_seconds", Long.toString(TimeUnit.MILLISECONDS.toSeconds(cleanupInterval)))));
+        } catch (NumberFormatException e) {
+            logger.warning("Invalid value for cleanup_interval_seconds, using default.");
+        }
+        try {
+            saveInterval = TimeUnit.SECONDS.toMillis(Long.parseLong(properties.getProperty("save_interval_seconds", "0")));
+        } catch (NumberFormatException e) {
+            logger.warning("Invalid value for save_interval_seconds, using default.");
+        }
+        AnimalContract.setDelaySaves(saveInterval > 0);
+        try {
+            int pageSize = Integer.parseInt(properties.getProperty("management_page_size", Integer.toString(managementPageSize)));
+            if (pageSize > 0) {
+                managementPageSize = pageSize;
+            } else {
+                logger.warning("Invalid value for management_page_size, using default.");
+            }
+        } catch (NumberFormatException e) {
+            logger.warning("Invalid value for management_page_size, using default.");
+        }
+        try {
+            int shards = Integer.parseInt(properties.getProperty("registry_shards", "1"));
+            if (shards > 0 && Integer.bitCount(shards) == 1) {
+                ProtectedRegistry.setShardCount(shards);
+            } else {
+                logger.warning("Invalid value for registry_shards, using default.");
+            }
+        } catch (NumberFormatException e) {
+            logger.warning("Invalid value for registry_shards, using default.");
+        }
+        try {
+            ProtectedRegistry.setFilterEnabled(Boolean.parseBoolean(properties.getProperty("registry_filter", "true")));
+        } catch (NumberFormatException e) {
+            logger.warning("Invalid value for registry_filter, using default.");
+        }
+        try {
+            ManagementBmlCache.setMaxSize(Integer.parseInt(properties.getProperty("management_bml_cache_size", "128")));
+        } catch (NumberFormatException e) {
+            logger.warning("Invalid value for management_bml_cache_size, using default.");
+        }
+        try {
+            bulkAssignRadius = Integer.parseInt(properties.getProperty("bulk_assign_radius", Integer.toString(bulkAssignRadius)));
+        } catch (NumberFormatException e) {
+            logger.warning("Invalid value for bulk_assign_radius, using default.");
+        }
+        try {
+            ContractMetrics.setEnabled(Boolean.parseBoolean(properties.getProperty("metrics", "false")));
+        } catch (NumberFormatException e) {
+            logger.warning("Invalid value for metrics, using default.");
+        }
+        try {
+            ContractMetrics.setSampleRate(Integer.parseInt(properties.getProperty("metrics_sample_rate", "16")));
+        } catch (NumberFormatException e) {
+            logger.warning("Invalid value for metrics_sample_rate, using default.");
+        }
+        try {
+            metricsLogInterval = TimeUnit.SECONDS.toMillis(Long.parseLong(properties.getProperty("metrics_log_interval_seconds", "300")));
+        } catch (NumberFormatException e) {
+            logger.warning("Invalid value for metrics_log_interval_seconds, using default.");
+        }
+        try {
+            int agingInterval = Integer.parseInt(properties.getProperty("protected_aging_interval", "0"));
+            if (agingInterval >= 0) {
+                SlowAging.setInterval(agingInterval);
+            } else {
+                logger.warning("Invalid value for protected_aging_interval, using default.");
+            }
+        } catch (NumberFormatException e) {
+            logger.warning("Invalid value for protected_aging_interval, using default.");
+        }
+        try {
+            long days = Long.parseLong(properties.getProperty("contract_duration_days", "0"));
+            if (days >= 0) {
+                ContractExpiry.setDuration(TimeUnit.DAYS.toMillis(days));
+            } else {
+                logger.warning("Invalid value for contract_duration_days, using default.");
+            }
+        } catch (NumberFormatException e) {
+            logger.warning("Invalid value for contract_duration_days, using default.");
+        }
+        try {
+            long irons = Long.parseLong(properties.getProperty("contract_upkeep_irons", "0"));
+            if (irons >= 0) {
+                ContractExpiry.setUpkeep(irons);
+            } else {
+                logger.warning("Invalid value for contract_upkeep_irons, using default.");
+            }
+        } catch (NumberFormatException e) {
+            logger.warning("Invalid value for contract_upkeep_irons, using default.");
+        }
+        AnimalContract.setIndex(new ContractIndex(Paths.get("mods", "animalcontracts", "contractindex.bin")));
+        String hook = properties.getProperty("pollage_hook", pollAgeHook);
+        if (hook.equals("bytecode") || hook.equals("reflection") || hook.equals("flag")) {
+            pollAgeHook = hook;
+        } else {
+            logger.warning("Invalid value for pollage_hook, using default.");
+        }
     }
 
     @Override
@@ -122,32 +269,166 @@ public class AnimalContractsMod implements WurmServerMod, Configurable, PreInita
     public void init() {
         HookManager manager = HookManager.getInstance();
 
-        manager.registerHook("com.wurmonline.server.creatures.CreatureStatus",
-                "pollAge",
-                "(I)Z",
-            () -> this::pollAge);
+        if (SlowAging.isEnabled()) {
+            try {
+                CtClass creatureStatus = manager.getClassPool().get("com.wurmonline.server.creatures.CreatureStatus");
+                creatureStatus.addField(CtField.make("public long " + SlowAging.FIELD + ";", creatureStatus));
+                creatureStatus.addMethod(CtNewMethod.make(SlowAging.methodSource(), creatureStatus));
+            } catch (NotFoundException | CannotCompileException e) {
+                logger.severe("Could not add slow aging to CreatureStatus.");
+                throw new RuntimeException(e);
+            }
+        }
+
+        if (pollAgeHook.equals("bytecode")) {
+            try {
+                CtClass creatureStatus = manager.getClassPool().get("com.wurmonline.server.creatures.CreatureStatus");
+                String check = "mod.wurmunlimited.contracts.animals.ProtectedRegistry.isProtected(this.statusHolder.getWurmId())";
+                if (ContractMetrics.enabled()) {
+                    check = "mod.wurmunlimited.contracts.animals.ContractMetrics.pollAgeChecked(" + check + ", start)";
+                }
+                String body = SlowAging.isEnabled() ? "this." + SlowAging.METHOD + "(" + check + ");" : "if (" + check + ") return false;";
+                if (ContractMetrics.enabled()) {
+                    body = "{ long start = mod.wurmunlimited.contracts.animals.ContractMetrics.startTimer();" + body + " }";
+                }
+                creatureStatus.getMethod("pollAge", "(I)Z").insertBefore(body);
+            } catch (NotFoundException | CannotCompileException e) {
+                logger.severe("Could not insert pollAge check into CreatureStatus.");
+                throw new RuntimeException(e);
+            }
+        } else if (pollAgeHook.equals("flag")) {
+            try {
+                CtClass creatureStatus = manager.getClassPool().get("com.wurmonline.server.creatures.CreatureStatus");
+                creatureStatus.addField(CtField.make("public boolean " + AgeFreeze.FIELD + ";", creatureStatus));
+                creatureStatus.addField(CtField.make("public boolean " + AgeFreeze.SYNCED_FIELD + ";", creatureStatus));
+                creatureStatus.addInterface(manager.getClassPool().get(AgeFreeze.Freezable.class.getName()));
+                creatureStatus.addMethod(CtNewMethod.make(AgeFreeze.methodSource(), creatureStatus));
+                String check = ContractMetrics.enabled()
+                                       ? "mod.wurmunlimited.contracts.animals.ContractMetrics.pollAgeChecked($0." + AgeFreeze.FIELD +
+                                                 ", mod.wurmunlimited.contracts.animals.ContractMetrics.NOT_TIMED)"
+                                       : "$0." + AgeFreeze.FIELD;
+                String replacement = "if (!$0." + AgeFreeze.SYNCED_FIELD + ") " +
+                                             "mod.wurmunlimited.contracts.animals.AgeFreeze.sync($0, $0.statusHolder.getWurmId());" +
+                                             (SlowAging.isEnabled()
+                                                      ? "$0." + SlowAging.METHOD + "(" + check + "); $_ = $proceed($$);"
+                                                      : "$_ = " + check + " ? false : $proceed($$);");
+                AtomicInteger replaced = new AtomicInteger();
+                manager.getClassPool().get("com.wurmonline.server.creatures.Creature").instrument(new ExprEditor() {
+                    @Override
+                    public void edit(MethodCall m) throws CannotCompileException {
+                        if (m.getClassName().equals("com.wurmonline.server.creatures.CreatureStatus") && m.getMethodName().equals("pollAge")) {
+                            m.replace(replacement);
+                            replaced.incrementAndGet();
+                        }
+                    }
+                });
+                if (replaced.get() == 0) {
+                    throw new NotFoundException("No pollAge calls found in Creature.");
+                }
+                AgeFreeze.setEnabled(true);
+            } catch (NotFoundException | CannotCompileException e) {
+                logger.severe("Could not insert ageFrozen check into Creature.");
+                throw new RuntimeException(e);
+            }
+        } else {
+            manager.registerHook("com.wurmonline.server.creatures.CreatureStatus",
+                    "pollAge",
+                    "(I)Z",
+                () -> this::pollAge);
+        }
+
+        try {
+            // The destroyItem(long, ...) overloads call each other, so only the one with the most parameters, which the
+            // others end up in, is hooked.
+            CtClass items = manager.getClassPool().get("com.wurmonline.server.Items");
+            CtMethod terminal = null;
+            for (CtMethod method : items.getDeclaredMethods("destroyItem")) {
+                CtClass[] parameters = method.getParameterTypes();
+                if (parameters.length > 0 && parameters[0] == CtClass.longType &&
+                            (terminal == null || parameters.length > terminal.getParameterTypes().length)) {
+                    terminal = method;
+                }
+            }
+            if (terminal == null) {
+                throw new NotFoundException("No destroyItem(long, ...) found in Items.");
+            }
+            terminal.insertBefore("mod.wurmunlimited.contracts.animals.AnimalContract.contractDestroyed($1);");
+        } catch (NotFoundException | CannotCompileException e) {
+            logger.severe("Could not insert contract cache invalidation into Items.destroyItem.");
+            throw new RuntimeException(e);
+        }
+
+        try {
+            manager.getClassPool().get("com.wurmonline.server.creatures.Creature").getMethod("destroy", "()V").insertBefore(
+                    "mod.wurmunlimited.contracts.animals.ContractCleanup.creatureDestroyed(this.getWurmId());");
+        } catch (NotFoundException | CannotCompileException e) {
+            logger.severe("Could not insert contract cleanup into Creature.destroy.");
+            throw new RuntimeException(e);
+        }
+
+        try {
+            manager.getClassPool().get("com.wurmonline.server.creatures.Creature").getMethod("setName", "(Ljava/lang/String;)V").insertAfter(
+                    "mod.wurmunlimited.contracts.animals.ManagementBmlCache.creatureChanged(this.getWurmId());");
+            manager.getClassPool().get("com.wurmonline.server.creatures.CreatureStatus").getMethod("setTraitBit", "(IZ)V").insertAfter(
+                    "mod.wurmunlimited.contracts.animals.ManagementBmlCache.creatureChanged(this.statusHolder.getWurmId());");
+        } catch (NotFoundException | CannotCompileException e) {
+            logger.severe("Could not insert management cache invalidation into Creature.setName or CreatureStatus.setTraitBit.");
+            throw new RuntimeException(e);
+        }
     }
 
     @Override
     public void onServerStarted() {
         ModActions.registerAction(new AssignAnimalAction(contractTemplateId));
         ModActions.registerAction(new ManageAnimalContractAction(contractTemplateId));
+        if (bulkAssignRadius > 0) {
+            ModActions.registerAction(new AssignNearbyAnimalsAction(contractTemplateId, bulkAssignRadius));
+        }
 
-        try {
-            Field inscriptions = Items.class.getDeclaredField("itemInscriptionDataMap");
-            inscriptions.setAccessible(true);
-            //noinspection unchecked
-            for (InscriptionData inscription : ((Map<Long, InscriptionData>)inscriptions.get(null)).values()) {
-                try {
-                    Item item = Items.getItem(inscription.getWurmId());
-                    if (item.getTemplateId() == contractTemplateId) {
-                        protectedCreatures.addAll(AnimalContract.getAnimalContract(item).getAllCreatures());
+        if (contractStorage.equals("expanding")) {
+            AnimalContract.setStore(new ExpandingContractStore());
+        } else if (contractStorage.equals("database")) {
+            AnimalContract.setStore(new DatabaseContractStore());
+        }
+
+        long start = System.nanoTime();
+        ContractIndex index = AnimalContract.getIndex();
+        if (rebuildContractIndex || !index.load()) {
+            index.rebuild(findContractItems());
+            logger.info("Rebuilt animal contract index.");
+        }
+
+        LongHashSet loadedIds = new LongHashSet();
+        LongHashSet missing = new LongHashSet();
+        List<Item> contracts = new ArrayList<>();
+        for (long contractId : index.getContractIds()) {
+            try {
+                Item item = Items.getItem(contractId);
+                if (item.getTemplateId() == contractTemplateId) {
+                    contracts.add(item);
+                    for (long creatureId : AnimalContract.loadCreatureIds(item)) {
+                        loadedIds.add(creatureId);
+                        CreatureContracts.put(creatureId, contractId);
                     }
-                } catch (NoSuchItemException ignored) {}
+                } else {
+                    missing.add(contractId);
+                }
+            } catch (NoSuchItemException e) {
+                missing.add(contractId);
             }
-        } catch (IllegalAccessException | NoSuchFieldException e) {
-            logger.severe("Could not find Item InscriptionData.");
-            throw new RuntimeException(e);
+        }
+        index.removeAll(missing.toArray());
+        ProtectedRegistry.addAll(loadedIds.toArray());
+        ContractExpiry.load(index, System.currentTimeMillis());
+        long loadMillis = (System.nanoTime() - start) / 1000000;
+        logger.info("Loaded " + contracts.size() + " animal contracts (" + loadedIds.size() + " animals) in " + loadMillis + "ms.");
+        ContractMetrics.startupLoaded(contracts.size(), loadedIds.size(), loadMillis);
+        if (ContractMetrics.enabled()) {
+            ContractMetrics.register();
+        }
+
+        if (prewarmThreads > 0) {
+            prewarmContracts(contracts);
         }
 
         if (updateTraders) {
@@ -177,6 +458,81 @@ public class AnimalContractsMod implements WurmServerMod, Configurable, PreInita
         }
     }
 
+    @Override
+    public void onServerPoll() {
+        long now = System.currentTimeMillis();
+        if (now >= nextCleanup) {
+            ContractCleanup.process();
+            nextCleanup = now + cleanupInterval;
+        }
+        if (ContractExpiry.isEnabled()) {
+            ContractExpiry.process(now);
+        }
+        if (saveInterval > 0 && now >= nextSave) {
+            AnimalContract.flush();
+            nextSave = now + saveInterval;
+        }
+        if (metricsLogInterval > 0 && ContractMetrics.enabled() && now >= nextMetricsLog) {
+            if (nextMetricsLog != 0) {
+                logger.info("Animal contract metrics: " + ContractMetrics.summary());
+            }
+            nextMetricsLog = now + metricsLogInterval;
+        }
+    }
+
+    @Override
+    public void onServerShutdown() {
+        AnimalContract.flush();
+    }
+
+    @Override
+    public MessagePolicy onPlayerMessage(Communicator communicator, String message, String title) {
+        return ContractStatistics.handle(communicator, message);
+    }
+
+    @Override
+    @Deprecated
+    public boolean onPlayerMessage(Communicator communicator, String message) {
+        return false;
+    }
+
+    /**
+     * Builds AnimalContracts for up to contract_cache_size contracts in the background, so the first right-click on
+     * each does not have to.
+     */
+    private void prewarmContracts(List<Item> contracts) {
+        ExecutorService executor = Executors.newFixedThreadPool(prewarmThreads, r -> {
+            Thread thread = new Thread(r, "AnimalContracts-prewarm");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (Item item : contracts.subList(0, Math.min(contracts.size(), contractCacheSize))) {
+            executor.execute(() -> AnimalContract.getAnimalContract(item));
+        }
+        executor.shutdown();
+    }
+
+    private long[] findContractItems() {
+        LongHashSet contractIds = new LongHashSet();
+        try {
+            Field inscriptions = Items.class.getDeclaredField("itemInscriptionDataMap");
+            inscriptions.setAccessible(true);
+            //noinspection unchecked
+            for (InscriptionData inscription : ((Map<Long, InscriptionData>)inscriptions.get(null)).values()) {
+                try {
+                    Item item = Items.getItem(inscription.getWurmId());
+                    if (item.getTemplateId() == contractTemplateId) {
+                        contractIds.add(item.getWurmId());
+                    }
+                } catch (NoSuchItemException ignored) {}
+            }
+        } catch (IllegalAccessException | NoSuchFieldException e) {
+            logger.severe("Could not find Item InscriptionData.");
+            throw new RuntimeException(e);
+        }
+        return contractIds.toArray();
+    }
+
     Object pollAge(Object o, Method method, Object[] args) throws InvocationTargetException, IllegalAccessException {
         if (statusHolder == null) {
             try {
@@ -188,7 +544,24 @@ public class AnimalContractsMod implements WurmServerMod, Configurable, PreInita
             statusHolder.setAccessible(true);
         }
 
-        if (protectedCreatures.contains((Creature)statusHolder.get(o))) {
+        boolean isProtected;
+        if (ContractMetrics.enabled()) {
+            long start = ContractMetrics.startTimer();
+            isProtected = ContractMetrics.pollAgeChecked(ProtectedRegistry.isProtected(((Creature)statusHolder.get(o)).getWurmId()), start);
+        } else {
+            isProtected = ProtectedRegistry.isProtected(((Creature)statusHolder.get(o)).getWurmId());
+        }
+        if (SlowAging.isEnabled()) {
+            if (slowAge == null) {
+                try {
+                    slowAge = CreatureStatus.class.getMethod(SlowAging.METHOD, boolean.class);
+                } catch (NoSuchMethodException e) {
+                    logger.severe("Could not find " + SlowAging.METHOD + " on CreatureStatus, was it woven?");
+                    throw new RuntimeException(e);
+                }
+            }
+            slowAge.invoke(o, isProtected);
+        } else if (isProtected) {
             return false;
         }
         return method.invoke(o, args);
@@ -0,0 +1,71 @@
+package mod.wurmunlimited.contracts.animals;
+
+import com.wurmonline.server.items.Item;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of parsed contracts, keyed by contract item wurm id.
+ */
+class ContractCache {
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private int maxSize;
+    private final LinkedHashMap<Long, AnimalContract> contracts = new LinkedHashMap<Long, AnimalContract>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, AnimalContract> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    ContractCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    synchronized AnimalContract get(Item item) {
+        AnimalContract contract = contracts.get(item.getWurmId());
+        if (contract != null && contract.isCurrentFor(item)) {
+            hits.increment();
+            return contract;
+        }
+        misses.increment();
+        return null;
+    }
+
+    synchronized boolean contains(long contractId) {
+        return contracts.containsKey(contractId);
+    }
+
+    synchronized void put(long contractId, AnimalContract contract) {
+        contracts.put(contractId, contract);
+    }
+
+    synchronized void invalidate(long contractId) {
+        contracts.remove(contractId);
+    }
+
+    synchronized void clear() {
+        contracts.clear();
+    }
+
+    synchronized void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        if (contracts.size() > maxSize) {
+            contracts.keySet().removeIf(id -> contracts.size() > this.maxSize);
+        }
+    }
+
+    synchronized int size() {
+        return contracts.size();
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+}
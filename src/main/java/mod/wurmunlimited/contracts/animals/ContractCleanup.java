@@ -0,0 +1,88 @@
+package mod.wurmunlimited.contracts.animals;
+
+import com.wurmonline.server.Items;
+import com.wurmonline.server.NoSuchItemException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Removes destroyed creatures from the registry and their contracts.  creatureDestroyed is called from the code
+ * woven into Creature.destroy and only queues the id, the queue is processed in batches from the server poll.
+ */
+public final class ContractCleanup {
+    private static final LongHashSet pending = new LongHashSet();
+
+    private ContractCleanup() {}
+
+    public static void creatureDestroyed(long creatureId) {
+        if (!ProtectedRegistry.contains(creatureId)) {
+            return;
+        }
+        synchronized (pending) {
+            pending.add(creatureId);
+        }
+        // The creature drops out of the management list straight away, before the contract itself is updated.
+        ManagementBmlCache.creatureChanged(creatureId);
+    }
+
+    static int pendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Removes all queued creatures, saving each affected contract once.
+     */
+    static void process() {
+        long[] ids;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            ids = pending.toArray();
+            pending.clear();
+        }
+
+        // Contracts remove their own creatures from the registry, only ids no contract holds are removed here, so
+        // each batch publishes as few registry snapshots as possible.
+        LongHashSet unclaimed = new LongHashSet();
+        Map<Long, LongHashSet> byContract = new HashMap<>();
+        for (long creatureId : ids) {
+            long contractId = CreatureContracts.getContractFor(creatureId);
+            if (contractId != CreatureContracts.NONE) {
+                byContract.computeIfAbsent(contractId, k -> new LongHashSet()).add(creatureId);
+            } else {
+                unclaimed.add(creatureId);
+            }
+        }
+
+        for (Map.Entry<Long, LongHashSet> entry : byContract.entrySet()) {
+            long contractId = entry.getKey();
+            long[] creatureIds = entry.getValue().toArray();
+            try {
+                AnimalContract contract = AnimalContract.getAnimalContract(Items.getItem(contractId));
+                if (contract.removeCreatureIds(creatureIds) == creatureIds.length) {
+                    continue;
+                }
+                // The contract did not hold every id it was mapped to, release whatever is left over.
+                for (long creatureId : creatureIds) {
+                    if (CreatureContracts.getContractFor(creatureId) == contractId) {
+                        CreatureContracts.remove(creatureId, contractId);
+                        unclaimed.add(creatureId);
+                    }
+                }
+            } catch (NoSuchItemException e) {
+                for (long creatureId : creatureIds) {
+                    CreatureContracts.remove(creatureId, contractId);
+                    unclaimed.add(creatureId);
+                }
+            }
+        }
+
+        if (!unclaimed.isEmpty()) {
+            ProtectedRegistry.removeAll(unclaimed.toArray());
+        }
+    }
+}
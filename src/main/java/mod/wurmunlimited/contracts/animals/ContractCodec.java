@@ -0,0 +1,188 @@
+package mod.wurmunlimited.contracts.animals;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.logging.Logger;
+
+/**
+ * Converts contract creature ids to and from the text stored on the contract.
+ *
+ * Wurm ids are laid out as counter << COUNTER_SHIFT | serverId << 8 | type, so ids of creatures from one server only
+ * differ in the counter, and consecutive creatures differ by at least 2^COUNTER_SHIFT.  The current format is PREFIX
+ * followed by unpadded base-64 of unsigned varints.  Ids are grouped by their low COUNTER_SHIFT bits, and each group is
+ * written as those bits, the number of ids, then the differences between their sorted counters.  A herd of creatures
+ * created close together takes one to three characters per animal.
+ *
+ * Contracts written in the first binary format, PREFIX_V1 with varints of whole id differences, and contracts written
+ * before either format, with one decimal id per line, are still readable.
+ */
+class ContractCodec {
+    private static final Logger logger = Logger.getLogger(ContractCodec.class.getName());
+    static final String PREFIX = "AC2:";
+    static final String PREFIX_V1 = "AC1:";
+    private static final int COUNTER_SHIFT = 24;
+    private static final long LOW_MASK = (1L << COUNTER_SHIFT) - 1;
+    private static final long[] empty = new long[0];
+
+    private ContractCodec() {}
+
+    /**
+     * Whether text is in an older format and should be saved again in the current one.
+     */
+    static boolean isLegacy(String text) {
+        return !text.isEmpty() && !text.startsWith(PREFIX);
+    }
+
+    static String encode(long[] ids) {
+        if (ids.length == 0) {
+            return "";
+        }
+        // Rotated so the low bits come first, and flipped so a signed sort orders them as unsigned values.
+        long[] keys = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            keys[i] = Long.rotateRight(ids[i], COUNTER_SHIFT) ^ Long.MIN_VALUE;
+        }
+        Arrays.sort(keys);
+
+        byte[] bytes = new byte[ids.length * 10 + 20];
+        int length = 0;
+        int start = 0;
+        while (start < keys.length) {
+            long low = Long.rotateLeft(keys[start] ^ Long.MIN_VALUE, COUNTER_SHIFT) & LOW_MASK;
+            int end = start;
+            int count = 0;
+            while (end < keys.length && (Long.rotateLeft(keys[end] ^ Long.MIN_VALUE, COUNTER_SHIFT) & LOW_MASK) == low) {
+                if (end == start || keys[end] != keys[end - 1]) {
+                    ++count;
+                }
+                ++end;
+            }
+            if (bytes.length - length < 20 + count * 10) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2 + count * 10);
+            }
+
+            length = writeVarint(bytes, length, low);
+            length = writeVarint(bytes, length, count);
+            long previous = 0;
+            for (int i = start; i < end; i++) {
+                if (i > start && keys[i] == keys[i - 1]) {
+                    continue;
+                }
+                long counter = Long.rotateLeft(keys[i] ^ Long.MIN_VALUE, COUNTER_SHIFT) >>> COUNTER_SHIFT;
+                length = writeVarint(bytes, length, counter - previous);
+                previous = counter;
+            }
+            start = end;
+        }
+
+        return PREFIX + Base64.getEncoder().withoutPadding().encodeToString(Arrays.copyOf(bytes, length));
+    }
+
+    private static int writeVarint(byte[] bytes, int length, long value) {
+        while ((value & ~0x7FL) != 0) {
+            bytes[length++] = (byte)((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[length++] = (byte)value;
+        return length;
+    }
+
+    static long[] decode(String text) {
+        if (text.isEmpty()) {
+            return empty;
+        }
+        boolean v1 = text.startsWith(PREFIX_V1);
+        if (!v1 && !text.startsWith(PREFIX)) {
+            return decodeLegacy(text);
+        }
+
+        byte[] bytes;
+        try {
+            bytes = Base64.getDecoder().decode(text.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            logger.warning("Invalid animal contract data - \"" + text + "\"");
+            return empty;
+        }
+
+        long[] values = new long[bytes.length];
+        int count = 0;
+        long value = 0;
+        int shift = 0;
+        for (byte b : bytes) {
+            value |= (long)(b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                values[count++] = value;
+                value = 0;
+                shift = 0;
+            } else {
+                shift += 7;
+                if (shift > 63) {
+                    logger.warning("Invalid animal contract data - \"" + text + "\"");
+                    return empty;
+                }
+            }
+        }
+
+        long[] ids = v1 ? decodeDeltas(values, count) : decodeGroups(values, count);
+        if (ids == null) {
+            logger.warning("Invalid animal contract data - \"" + text + "\"");
+            return empty;
+        }
+        return ids;
+    }
+
+    private static long[] decodeDeltas(long[] values, int count) {
+        long[] ids = new long[count];
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += values[i];
+            ids[i] = previous;
+        }
+        return ids;
+    }
+
+    /**
+     * Returns null if the values do not make up whole groups.
+     */
+    private static long[] decodeGroups(long[] values, int count) {
+        long[] ids = new long[count];
+        int idCount = 0;
+        int i = 0;
+        while (i < count) {
+            if (i + 2 > count || (values[i] & ~LOW_MASK) != 0 || values[i + 1] < 0 || values[i + 1] > count - i - 2) {
+                return null;
+            }
+            long low = values[i];
+            int groupSize = (int)values[i + 1];
+            i += 2;
+            long counter = 0;
+            for (int end = i + groupSize; i < end; i++) {
+                counter += values[i];
+                ids[idCount++] = counter << COUNTER_SHIFT | low;
+            }
+        }
+        ids = Arrays.copyOf(ids, idCount);
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private static long[] decodeLegacy(String text) {
+        String[] lines = text.split("\n");
+        long[] ids = new long[lines.length];
+        int count = 0;
+
+        for (String line : lines) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                ids[count] = Long.parseLong(line.trim());
+                ++count;
+            } catch (NumberFormatException e) {
+                logger.warning("Invalid creature id on animal contract - \"" + line + "\"");
+            }
+        }
+
+        return Arrays.copyOf(ids, count);
+    }
+}
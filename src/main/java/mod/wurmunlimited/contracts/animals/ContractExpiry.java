@@ -0,0 +1,191 @@
+package mod.wurmunlimited.contracts.animals;
+
+import com.wurmonline.server.Items;
+import com.wurmonline.server.MiscConstants;
+import com.wurmonline.server.NoSuchItemException;
+import com.wurmonline.server.Players;
+import com.wurmonline.server.economy.Change;
+import com.wurmonline.server.items.Item;
+import com.wurmonline.server.players.Player;
+import com.wurmonline.server.players.PlayerInfo;
+import com.wurmonline.server.players.PlayerInfoFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Ends contracts contract_duration_days after animals are first assigned, unless contract_upkeep_irons can be taken
+ * from the owner's bank account, in which case the contract runs for another term.
+ *
+ * A term starts when a contract enters the ContractIndex, and its deadline is stored there so it survives restarts.
+ * Deadlines are held in a TimerWheel which is advanced from the server poll, so only contracts that are due are ever
+ * looked at.  Animals on expired contracts are released, and removed from the ProtectedRegistry in one batch.  An
+ * expired or empty contract leaves the index, so assigning animals to it again starts a new term.
+ */
+final class ContractExpiry {
+    private static final Logger logger = Logger.getLogger(ContractExpiry.class.getName());
+    private static final int SLOTS = 1024;
+    private static final long TICK_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static long duration = 0;
+    private static long upkeep = 0;
+    private static TimerWheel wheel = new TimerWheel(SLOTS, TICK_MILLIS, System.currentTimeMillis());
+
+    private ContractExpiry() {}
+
+    static void setDuration(long millis) {
+        duration = Math.max(0, millis);
+    }
+
+    static void setUpkeep(long irons) {
+        upkeep = Math.max(0, irons);
+    }
+
+    static boolean isEnabled() {
+        return duration > 0;
+    }
+
+    /**
+     * The deadline for a term starting now, or ContractIndex.NO_DEADLINE if contracts do not expire.
+     */
+    static long newDeadline(long now) {
+        return duration > 0 ? now + duration : ContractIndex.NO_DEADLINE;
+    }
+
+    static synchronized void schedule(long contractId, long deadline) {
+        if (deadline != ContractIndex.NO_DEADLINE) {
+            wheel.schedule(contractId, deadline);
+        }
+    }
+
+    static synchronized void cancel(long contractId) {
+        wheel.cancel(contractId);
+    }
+
+    static synchronized int scheduledCount() {
+        return wheel.size();
+    }
+
+    /**
+     * Schedules every contract in index.  Contracts without a deadline, e.g. from before expiry was enabled, start
+     * a term now.  If expiry is disabled all stored deadlines are dropped, so re-enabling it later starts fresh terms.
+     */
+    static void load(ContractIndex index, long now) {
+        long[] ids = index.getContractIds();
+        long[] deadlines = new long[ids.length];
+        synchronized (ContractExpiry.class) {
+            wheel = new TimerWheel(SLOTS, TICK_MILLIS, now);
+            for (int i = 0; i < ids.length; i++) {
+                long deadline = index.getDeadline(ids[i]);
+                if (!isEnabled()) {
+                    deadline = ContractIndex.NO_DEADLINE;
+                } else if (deadline == ContractIndex.NO_DEADLINE) {
+                    deadline = newDeadline(now);
+                }
+                deadlines[i] = deadline;
+                schedule(ids[i], deadline);
+            }
+        }
+        index.setDeadlines(ids, deadlines);
+    }
+
+    /**
+     * Renews or expires every contract whose deadline has passed.
+     */
+    static void process(long now) {
+        long[] due;
+        synchronized (ContractExpiry.class) {
+            due = wheel.advance(now);
+        }
+        if (due.length == 0) {
+            return;
+        }
+
+        ContractIndex index = AnimalContract.getIndex();
+        LongHashSet released = new LongHashSet();
+        LongHashSet ended = new LongHashSet();
+        long[] renewedIds = new long[due.length];
+        long[] renewedDeadlines = new long[due.length];
+        int renewed = 0;
+        int expired = 0;
+        for (long contractId : due) {
+            Item item;
+            try {
+                item = Items.getItem(contractId);
+            } catch (NoSuchItemException e) {
+                ended.add(contractId);
+                continue;
+            }
+            if (!AnimalContract.isAnimalContract(item)) {
+                ended.add(contractId);
+                continue;
+            }
+            AnimalContract contract = AnimalContract.getAnimalContract(item);
+            if (contract.getCreatureCount() == 0) {
+                ended.add(contractId);
+                continue;
+            }
+
+            long ownerId = getOwnerId(item);
+            if (upkeep > 0 && chargeUpkeep(ownerId)) {
+                // Terms run on from the previous deadline, unless the server was down for the whole of the next one.
+                long deadline = index.getDeadline(contractId) + duration;
+                renewedIds[renewed] = contractId;
+                renewedDeadlines[renewed++] = deadline > now ? deadline : newDeadline(now);
+                tell(ownerId, "You pay " + new Change(upkeep).getChangeString() + " upkeep for your animal contract.");
+            } else {
+                for (long creatureId : contract.releaseAll()) {
+                    released.add(creatureId);
+                }
+                ended.add(contractId);
+                ++expired;
+                tell(ownerId, "Your animal contract has expired, and its animals will age again.");
+            }
+        }
+
+        ProtectedRegistry.removeAll(released.toArray());
+        index.removeAll(ended.toArray());
+        renewedIds = Arrays.copyOf(renewedIds, renewed);
+        renewedDeadlines = Arrays.copyOf(renewedDeadlines, renewed);
+        index.setDeadlines(renewedIds, renewedDeadlines);
+        synchronized (ContractExpiry.class) {
+            for (int i = 0; i < renewed; i++) {
+                schedule(renewedIds[i], renewedDeadlines[i]);
+            }
+        }
+        if (expired > 0) {
+            logger.info("Expired " + expired + " animal contracts, releasing " + released.size() + " animals.");
+        }
+    }
+
+    /**
+     * Contracts in a container, bank or on the ground have no owner, so the last player to hold them pays instead.
+     */
+    private static long getOwnerId(Item item) {
+        long ownerId = item.getOwnerId();
+        return ownerId != MiscConstants.NOID ? ownerId : item.getLastOwnerId();
+    }
+
+    private static boolean chargeUpkeep(long ownerId) {
+        PlayerInfo info = PlayerInfoFactory.getPlayerInfoWithWurmId(ownerId);
+        if (info == null || info.getMoney() < upkeep) {
+            return false;
+        }
+        try {
+            info.setMoney(info.getMoney() - upkeep);
+            return true;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not take animal contract upkeep from " + info.getName() + ".", e);
+            return false;
+        }
+    }
+
+    private static void tell(long ownerId, String message) {
+        Player player = Players.getInstance().getPlayerOrNull(ownerId);
+        if (player != null) {
+            player.getCommunicator().sendNormalServerMessage(message);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package mod.wurmunlimited.contracts.animals;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Persistent set of the wurm ids of contract items that have had animals assigned, so startup only needs to visit
+ * those items.  New ids are appended to the file, removals rewrite it.
+ * Each id is stored with the contract's expiry deadline in epoch millis, or NO_DEADLINE, so deadlines survive
+ * restarts (see ContractExpiry).  Version 1 files hold ids only, and are rewritten as version 2 when loaded.
+ * If file is null the index is kept in memory only and is rebuilt every start.
+ */
+class ContractIndex {
+    private static final Logger logger = Logger.getLogger(ContractIndex.class.getName());
+    private static final int MAGIC = 0x41434958;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 8;
+    static final long NO_DEADLINE = 0;
+    private final Path file;
+    private final LongHashSet contractIds = new LongHashSet();
+    // Only contracts that have a deadline are held.
+    private final LongLongHashMap deadlines = new LongLongHashMap(NO_DEADLINE);
+
+    ContractIndex(@Nullable Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Reads the index file.  Returns false if it is missing or unreadable, in which case the index should be rebuilt.
+     */
+    synchronized boolean load() {
+        contractIds.clear();
+        deadlines.clear();
+        if (file == null || !Files.isRegularFile(file)) {
+            return false;
+        }
+
+        int version;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            long length = Files.size(file);
+            version = length < HEADER_BYTES || in.readInt() != MAGIC ? -1 : in.readInt();
+            int recordBytes = version == 1 ? Long.BYTES : Long.BYTES * 2;
+            if ((version != 1 && version != VERSION) || (length - HEADER_BYTES) % recordBytes != 0) {
+                logger.warning("Animal contract index is invalid and will be rebuilt.");
+                return false;
+            }
+            for (long i = (length - HEADER_BYTES) / recordBytes; i > 0; --i) {
+                long contractId = in.readLong();
+                contractIds.add(contractId);
+                long deadline = version == 1 ? NO_DEADLINE : in.readLong();
+                if (deadline != NO_DEADLINE) {
+                    deadlines.put(contractId, deadline);
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not read animal contract index, it will be rebuilt.", e);
+            contractIds.clear();
+            deadlines.clear();
+            return false;
+        }
+        if (version != VERSION) {
+            // Records are appended in the current format.
+            write();
+        }
+        return true;
+    }
+
+    synchronized void add(long contractId) {
+        add(contractId, NO_DEADLINE);
+    }
+
+    /**
+     * Adds contractId with a deadline.  Does nothing if it is already in the index, use setDeadlines to change it.
+     */
+    synchronized void add(long contractId, long deadline) {
+        if (!contractIds.add(contractId)) {
+            return;
+        }
+        if (deadline != NO_DEADLINE) {
+            deadlines.put(contractId, deadline);
+        }
+        if (file == null) {
+            return;
+        }
+
+        if (!Files.isRegularFile(file)) {
+            write();
+            return;
+        }
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file, StandardOpenOption.APPEND))) {
+            out.writeLong(contractId);
+            out.writeLong(deadline);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not add to animal contract index.", e);
+        }
+    }
+
+    synchronized void remove(long contractId) {
+        if (contractIds.remove(contractId)) {
+            deadlines.remove(contractId);
+            write();
+        }
+    }
+
+    synchronized void removeAll(long[] ids) {
+        boolean changed = false;
+        for (long id : ids) {
+            if (contractIds.remove(id)) {
+                deadlines.remove(id);
+                changed = true;
+            }
+        }
+        if (changed) {
+            write();
+        }
+    }
+
+    /**
+     * Replaces the ids, keeping the deadlines of contracts that were already in the index.
+     */
+    synchronized void rebuild(long[] ids) {
+        LongLongHashMap kept = new LongLongHashMap(NO_DEADLINE);
+        for (long id : ids) {
+            long deadline = deadlines.get(id);
+            if (deadline != NO_DEADLINE) {
+                kept.put(id, deadline);
+            }
+        }
+        contractIds.clear();
+        deadlines.clear();
+        for (long id : ids) {
+            contractIds.add(id);
+            long deadline = kept.get(id);
+            if (deadline != NO_DEADLINE) {
+                deadlines.put(id, deadline);
+            }
+        }
+        write();
+    }
+
+    synchronized long getDeadline(long contractId) {
+        return deadlines.get(contractId);
+    }
+
+    /**
+     * Sets the deadline of each contract in ids to the matching entry in newDeadlines with a single rewrite.
+     * Ids that are not in the index are ignored.
+     */
+    synchronized void setDeadlines(long[] ids, long[] newDeadlines) {
+        boolean changed = false;
+        for (int i = 0; i < ids.length; i++) {
+            if (!contractIds.contains(ids[i])) {
+                continue;
+            }
+            long previous = newDeadlines[i] == NO_DEADLINE ? deadlines.remove(ids[i]) : deadlines.put(ids[i], newDeadlines[i]);
+            changed |= previous != newDeadlines[i];
+        }
+        if (changed) {
+            write();
+        }
+    }
+
+    synchronized boolean contains(long contractId) {
+        return contractIds.contains(contractId);
+    }
+
+    synchronized long[] getContractIds() {
+        return contractIds.toArray();
+    }
+
+    synchronized int size() {
+        return contractIds.size();
+    }
+
+    private void write() {
+        if (file == null) {
+            return;
+        }
+
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, "contractindex", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                for (long id : contractIds.toArray()) {
+                    out.writeLong(id);
+                    out.writeLong(deadlines.get(id));
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not write animal contract index.", e);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package mod.wurmunlimited.contracts.animals;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Counters and sampled latency histograms for the mod, exposed over JMX and as a periodic log summary.
+ *
+ * Nothing is counted unless metrics are enabled.  The pollAge counters are only woven into CreatureStatus when metrics
+ * are enabled at init, so the disabled hook is the plain registry check.  Timers return NOT_TIMED when disabled or
+ * when the call is not sampled, and recording a NOT_TIMED start does nothing.
+ */
+public class ContractMetrics implements ContractMetricsMBean {
+    private static final Logger logger = Logger.getLogger(ContractMetrics.class.getName());
+    static final String OBJECT_NAME = "mod.wurmunlimited.contracts.animals:type=ContractMetrics";
+    public static final long NOT_TIMED = Long.MIN_VALUE;
+    private static boolean enabled = false;
+    private static int sampleRate = 16;
+    private static final LongAdder pollAgeCalls = new LongAdder();
+    private static final LongAdder pollAgeProtected = new LongAdder();
+    static final LatencyHistogram pollAgeChecks = new LatencyHistogram();
+    static final LatencyHistogram loads = new LatencyHistogram();
+    static final LatencyHistogram saves = new LatencyHistogram();
+    private static long startupLoadMillis = 0;
+    private static int startupContracts = 0;
+    private static int startupAnimals = 0;
+
+    static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    public static boolean enabled() {
+        return enabled;
+    }
+
+    static void setSampleRate(int rate) {
+        sampleRate = Math.max(1, rate);
+    }
+
+    /**
+     * Returns the start time for a sampled call, or NOT_TIMED.
+     */
+    public static long startTimer() {
+        if (!enabled || (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0)) {
+            return NOT_TIMED;
+        }
+        return System.nanoTime();
+    }
+
+    static void record(LatencyHistogram histogram, long start) {
+        if (start != NOT_TIMED) {
+            histogram.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Called from the woven pollAge check.  Returns isProtected so the check can be used inline.
+     */
+    public static boolean pollAgeChecked(boolean isProtected, long start) {
+        pollAgeCalls.increment();
+        if (isProtected) {
+            pollAgeProtected.increment();
+        }
+        record(pollAgeChecks, start);
+        return isProtected;
+    }
+
+    static void startupLoaded(int contracts, int animals, long millis) {
+        startupContracts = contracts;
+        startupAnimals = animals;
+        startupLoadMillis = millis;
+    }
+
+    static void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new ContractMetrics(), name);
+            }
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "Could not register animal contract metrics with JMX.", e);
+        }
+    }
+
+    static String summary() {
+        ContractMetrics metrics = new ContractMetrics();
+        return String.format("pollAge %d calls (%d protected, check p99 <= %dns), " +
+                                     "loads %d sampled (mean %.1fus, p99 <= %dus), " +
+                                     "saves %d sampled (mean %.1fus, p99 <= %dus), " +
+                                     "contract cache %d/%d hits, management BML cache %d/%d hits, %d protected animals, " +
+                                     "registry filter %.2f%% false positives.",
+                metrics.getPollAgeCalls(), metrics.getPollAgeProtected(), metrics.getPollAgeCheckP99Nanos(),
+                metrics.getContractLoadSamples(), metrics.getContractLoadMeanMicros(), metrics.getContractLoadP99Micros(),
+                metrics.getContractSaveSamples(), metrics.getContractSaveMeanMicros(), metrics.getContractSaveP99Micros(),
+                metrics.getContractCacheHits(), metrics.getContractCacheHits() + metrics.getContractCacheMisses(),
+                metrics.getManagementBmlCacheHits(), metrics.getManagementBmlCacheHits() + metrics.getManagementBmlCacheMisses(),
+                metrics.getProtectedAnimals(), metrics.getRegistryFilterFalsePositiveRate() * 100);
+    }
+
+    private static long micros(long nanos) {
+        return nanos == Long.MAX_VALUE ? nanos : TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public long getPollAgeCalls() {
+        return pollAgeCalls.sum();
+    }
+
+    @Override
+    public long getPollAgeProtected() {
+        return pollAgeProtected.sum();
+    }
+
+    @Override
+    public long getPollAgeCheckP50Nanos() {
+        return pollAgeChecks.getPercentileNanos(50);
+    }
+
+    @Override
+    public long getPollAgeCheckP99Nanos() {
+        return pollAgeChecks.getPercentileNanos(99);
+    }
+
+    @Override
+    public long getContractLoadSamples() {
+        return loads.getCount();
+    }
+
+    @Override
+    public double getContractLoadMeanMicros() {
+        return loads.getMeanNanos() / 1000.0;
+    }
+
+    @Override
+    public long getContractLoadP99Micros() {
+        return micros(loads.getPercentileNanos(99));
+    }
+
+    @Override
+    public long getContractLoadMaxMicros() {
+        return micros(loads.getMaxNanos());
+    }
+
+    @Override
+    public long getContractSaveSamples() {
+        return saves.getCount();
+    }
+
+    @Override
+    public double getContractSaveMeanMicros() {
+        return saves.getMeanNanos() / 1000.0;
+    }
+
+    @Override
+    public long getContractSaveP99Micros() {
+        return micros(saves.getPercentileNanos(99));
+    }
+
+    @Override
+    public long getContractSaveMaxMicros() {
+        return micros(saves.getMaxNanos());
+    }
+
+    @Override
+    public long getContractCacheHits() {
+        return AnimalContract.cache.getHits();
+    }
+
+    @Override
+    public long getContractCacheMisses() {
+        return AnimalContract.cache.getMisses();
+    }
+
+    @Override
+    public long getManagementBmlCacheHits() {
+        return ManagementBmlCache.getHits();
+    }
+
+    @Override
+    public long getManagementBmlCacheMisses() {
+        return ManagementBmlCache.getMisses();
+    }
+
+    @Override
+    public long getStartupLoadMillis() {
+        return startupLoadMillis;
+    }
+
+    @Override
+    public int getStartupContracts() {
+        return startupContracts;
+    }
+
+    @Override
+    public int getStartupAnimals() {
+        return startupAnimals;
+    }
+
+    @Override
+    public int getProtectedAnimals() {
+        return ProtectedRegistry.size();
+    }
+
+    @Override
+    public long getRegistryLookups() {
+        return ProtectedRegistry.getLookups();
+    }
+
+    @Override
+    public long getRegistryFilterFalsePositives() {
+        return ProtectedRegistry.getFalsePositives();
+    }
+
+    @Override
+    public double getRegistryFilterFalsePositiveRate() {
+        return ProtectedRegistry.getFalsePositiveRate();
+    }
+
+    @Override
+    public void reset() {
+        pollAgeCalls.reset();
+        pollAgeProtected.reset();
+        pollAgeChecks.reset();
+        loads.reset();
+        saves.reset();
+        ProtectedRegistry.resetCounters();
+    }
+}
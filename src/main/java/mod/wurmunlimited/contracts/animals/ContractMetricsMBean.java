@@ -0,0 +1,56 @@
+package mod.wurmunlimited.contracts.animals;
+
+/**
+ * JMX view of ContractMetrics.  Latencies come from sampled calls and are bucket upper bounds.
+ */
+public interface ContractMetricsMBean {
+    boolean isEnabled();
+
+    long getPollAgeCalls();
+
+    long getPollAgeProtected();
+
+    long getPollAgeCheckP50Nanos();
+
+    long getPollAgeCheckP99Nanos();
+
+    long getContractLoadSamples();
+
+    double getContractLoadMeanMicros();
+
+    long getContractLoadP99Micros();
+
+    long getContractLoadMaxMicros();
+
+    long getContractSaveSamples();
+
+    double getContractSaveMeanMicros();
+
+    long getContractSaveP99Micros();
+
+    long getContractSaveMaxMicros();
+
+    long getContractCacheHits();
+
+    long getContractCacheMisses();
+
+    long getManagementBmlCacheHits();
+
+    long getManagementBmlCacheMisses();
+
+    long getStartupLoadMillis();
+
+    int getStartupContracts();
+
+    int getStartupAnimals();
+
+    int getProtectedAnimals();
+
+    long getRegistryLookups();
+
+    long getRegistryFilterFalsePositives();
+
+    double getRegistryFilterFalsePositiveRate();
+
+    void reset();
+}
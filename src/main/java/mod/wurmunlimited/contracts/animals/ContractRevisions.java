@@ -0,0 +1,21 @@
+package mod.wurmunlimited.contracts.animals;
+
+/**
+ * Per-contract modification counters, for stores whose writes leave the contract item untouched.  Revisions come
+ * from one sequence, so a contract never returns to a revision it had before.
+ *
+ * A write must be counted after it is made, and a reader must take the revision before it loads, so that a reader
+ * racing a write ends up with either the new data or an out of date revision.
+ */
+class ContractRevisions {
+    private final LongLongHashMap revisions = new LongLongHashMap(0);
+    private long sequence = 0;
+
+    synchronized void changed(long contractId) {
+        revisions.put(contractId, ++sequence);
+    }
+
+    synchronized String get(long contractId) {
+        return Long.toString(revisions.get(contractId));
+    }
+}
@@ -0,0 +1,164 @@
+package mod.wurmunlimited.contracts.animals;
+
+import com.wurmonline.server.Items;
+import com.wurmonline.server.MiscConstants;
+import com.wurmonline.server.NoSuchItemException;
+import com.wurmonline.server.creatures.Communicator;
+import com.wurmonline.server.items.Item;
+import org.gotti.wurmunlimited.modloader.interfaces.MessagePolicy;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * GM report of contract and registry statistics, built from the in-memory indexes without resolving any creatures.
+ */
+class ContractStatistics {
+    private static final Logger logger = Logger.getLogger(ContractStatistics.class.getName());
+    static final String COMMAND = "#contractstats";
+    static final int MIN_POWER = 2;
+    static final double NEAR_CAPACITY = 0.9;
+    private static final int LISTED = 5;
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "AnimalContracts-report");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static class ContractRow {
+        final long contractId;
+        final long ownerId;
+        final int animals;
+        // Fraction of capacity used, whichever of max_animals_per_contract or the store's own limit is closer.
+        final double full;
+
+        ContractRow(long contractId, long ownerId, int animals, double full) {
+            this.contractId = contractId;
+            this.ownerId = ownerId;
+            this.animals = animals;
+            this.full = full;
+        }
+
+        int percentFull() {
+            return (int)(full * 100);
+        }
+    }
+
+    private ContractStatistics() {}
+
+    /**
+     * Handles the command if message is one.  The command is never passed on as chat, even when the sender may not
+     * use it.
+     */
+    static MessagePolicy handle(Communicator communicator, String message) {
+        if (!message.equals(COMMAND) && !message.startsWith(COMMAND + " ")) {
+            return MessagePolicy.PASS;
+        }
+        if (communicator.getPlayer().getPower() < MIN_POWER) {
+            return MessagePolicy.DISCARD;
+        }
+
+        ContractRow[] rows = snapshot();
+        for (String line : summarise(rows)) {
+            communicator.sendNormalServerMessage(line);
+        }
+
+        if (message.substring(COMMAND.length()).trim().equals("csv")) {
+            Path path = Paths.get("logs", "animalcontracts-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".csv");
+            writeCsvAsync(rows, path);
+            communicator.sendNormalServerMessage("Writing full contract report to " + path + ".");
+        }
+        return MessagePolicy.DISCARD;
+    }
+
+    static ContractRow[] snapshot() {
+        long[] contractIds = AnimalContract.getIndex().getContractIds();
+        ContractRow[] rows = new ContractRow[contractIds.length];
+        ContractStore store = AnimalContract.getStore();
+        int max = Math.max(1, AnimalContract.getMaxCreatures());
+        for (int i = 0; i < contractIds.length; i++) {
+            int animals = CreatureContracts.getCreatureCount(contractIds[i]);
+            long ownerId = MiscConstants.NOID;
+            double full = (double)animals / max;
+            try {
+                Item item = Items.getItem(contractIds[i]);
+                ownerId = item.getOwnerId();
+                full = Math.max(full, store.usage(item));
+            } catch (NoSuchItemException ignored) {}
+            rows[i] = new ContractRow(contractIds[i], ownerId, animals, Math.min(1, full));
+        }
+        return rows;
+    }
+
+    static String[] summarise(ContractRow[] rows) {
+        int nearCapacity = 0;
+        for (ContractRow row : rows) {
+            if (row.full >= NEAR_CAPACITY) {
+                ++nearCapacity;
+            }
+        }
+
+        ContractRow[] fullest = rows.clone();
+        Arrays.sort(fullest, Comparator.comparingDouble((ContractRow row) -> row.full).thenComparingInt(row -> row.animals).reversed());
+        StringBuilder sb = new StringBuilder("Fullest contracts:");
+        for (int i = 0; i < Math.min(LISTED, fullest.length); i++) {
+            sb.append(i == 0 ? " " : ", ").append(fullest[i].contractId).append(" (").append(fullest[i].animals)
+                    .append(" animals, ").append(fullest[i].percentFull()).append("%)");
+        }
+        if (fullest.length == 0) {
+            sb.append(" none");
+        }
+
+        return new String[] {
+                "Animal contracts: " + rows.length + " contracts, " + CreatureContracts.size() + " animals assigned, " +
+                        ProtectedRegistry.size() + " protected.",
+                nearCapacity + " contracts are at least " + (int)(NEAR_CAPACITY * 100) + "% full.",
+                sb.toString(),
+                "Memory: protected registry " + kilobytes(ProtectedRegistry.memoryBytes()) + ", creature index " +
+                        kilobytes(CreatureContracts.memoryBytes()) + ", " + AnimalContract.cache.size() + " cached contracts, " +
+                        AnimalContract.getDirtyCount() + " unsaved."
+        };
+    }
+
+    private static String kilobytes(long bytes) {
+        return (bytes + 1023) / 1024 + "KB";
+    }
+
+    static void writeCsvAsync(ContractRow[] rows, Path path) {
+        writer.execute(() -> {
+            try {
+                writeCsv(rows, path);
+                logger.info("Wrote animal contract report to " + path + ".");
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Could not write animal contract report to " + path + ".", e);
+            }
+        });
+    }
+
+    static void writeCsv(ContractRow[] rows, Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        int max = AnimalContract.getMaxCreatures();
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            out.write("contract_id,owner_id,animals,max_animals,percent_full");
+            out.newLine();
+            for (ContractRow row : rows) {
+                out.write(row.contractId + "," + row.ownerId + "," + row.animals + "," + max + "," + row.percentFull());
+                out.newLine();
+            }
+        }
+    }
+}
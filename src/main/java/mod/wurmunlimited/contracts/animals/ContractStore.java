@@ -0,0 +1,62 @@
+package mod.wurmunlimited.contracts.animals;
+
+import com.wurmonline.server.items.Item;
+
+/**
+ * Persists the creature ids assigned to each contract.
+ */
+public interface ContractStore {
+    /**
+     * Returns the ids of all creatures assigned to the contract.
+     */
+    long[] load(Item contract);
+
+    /**
+     * Replaces the stored ids for the contract with creatureIds.
+     */
+    void save(Item contract, long[] creatureIds) throws ContractFullException;
+
+    /**
+     * Throws if creatureIds could not be saved, without saving them.  Used when saves are delayed.
+     */
+    default void checkCapacity(long[] creatureIds) throws ContractFullException {}
+
+    /**
+     * Records that creatureId was added.  creatureIds is the full list after the change, for stores that rewrite
+     * the whole contract.
+     */
+    default void add(Item contract, long[] creatureIds, long creatureId) throws ContractFullException {
+        save(contract, creatureIds);
+    }
+
+    /**
+     * Records that creatureId was removed.  creatureIds is the full list after the change, for stores that rewrite
+     * the whole contract.
+     */
+    default void remove(Item contract, long[] creatureIds, long creatureId) {
+        try {
+            save(contract, creatureIds);
+        } catch (ContractFullException ignored) {}
+        // ^ Removing never makes a contract larger.
+    }
+
+    /**
+     * Removes all data for a contract item that no longer exists.
+     */
+    default void delete(long contractId) {}
+
+    /**
+     * The fraction of the space the store has for the contract that is in use, or 0 if the store has no limit of its
+     * own.
+     */
+    default double usage(Item contract) {
+        return 0;
+    }
+
+    /**
+     * Identifies the stored state of the contract, so that changes made outside the store can be detected.
+     */
+    default String revision(Item contract) {
+        return "";
+    }
+}
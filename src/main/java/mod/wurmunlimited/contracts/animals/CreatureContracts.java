@@ -0,0 +1,75 @@
+package mod.wurmunlimited.contracts.animals;
+
+import com.wurmonline.server.MiscConstants;
+
+/**
+ * Reverse index from creature wurm id to the wurm id of the contract item it is assigned to, with a count of creatures
+ * per contract.
+ */
+public final class CreatureContracts {
+    public static final long NONE = MiscConstants.NOID;
+    private static final LongLongHashMap contracts = new LongLongHashMap(NONE);
+    private static final LongLongHashMap counts = new LongLongHashMap(0);
+
+    private CreatureContracts() {}
+
+    /**
+     * Returns the wurm id of the contract item the creature is assigned to, or NONE.
+     */
+    public static synchronized long getContractFor(long creatureId) {
+        return contracts.get(creatureId);
+    }
+
+    public static synchronized boolean isOnContract(long creatureId) {
+        return contracts.containsKey(creatureId);
+    }
+
+    /**
+     * Returns the number of creatures recorded against contractId.
+     */
+    public static synchronized int getCreatureCount(long contractId) {
+        return (int)counts.get(contractId);
+    }
+
+    static synchronized void put(long creatureId, long contractId) {
+        long previous = contracts.put(creatureId, contractId);
+        if (previous != contractId) {
+            if (previous != NONE) {
+                decrement(previous);
+            }
+            counts.put(contractId, counts.get(contractId) + 1);
+        }
+    }
+
+    private static void decrement(long contractId) {
+        long count = counts.get(contractId) - 1;
+        if (count <= 0) {
+            counts.remove(contractId);
+        } else {
+            counts.put(contractId, count);
+        }
+    }
+
+    /**
+     * Removes the entry only if the creature is recorded against contractId.
+     */
+    static synchronized void remove(long creatureId, long contractId) {
+        if (contracts.get(creatureId) == contractId) {
+            contracts.remove(creatureId);
+            decrement(contractId);
+        }
+    }
+
+    public static synchronized int size() {
+        return contracts.size();
+    }
+
+    static synchronized long memoryBytes() {
+        return contracts.memoryBytes() + counts.memoryBytes();
+    }
+
+    static synchronized void clear() {
+        contracts.clear();
+        counts.clear();
+    }
+}
@@ -0,0 +1,195 @@
+package mod.wurmunlimited.contracts.animals;
+
+import com.wurmonline.server.items.InscriptionData;
+import com.wurmonline.server.items.Item;
+import org.gotti.wurmunlimited.modsupport.ModSupportDb;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stores one (contract, creature) row per assigned animal in the mod support database, so adding or removing an
+ * animal is a single row write.
+ */
+public class DatabaseContractStore implements ContractStore {
+    private static final Logger logger = Logger.getLogger(DatabaseContractStore.class.getName());
+    private static final String TABLE = "ANIMALCONTRACTS";
+    private final LongHashSet contractIds = new LongHashSet();
+    // Writes only touch the table, so the contract item cannot tell a cached AnimalContract that it is out of date.
+    private final ContractRevisions revisions = new ContractRevisions();
+
+    public DatabaseContractStore() {
+        try (Connection db = ModSupportDb.getModSupportDb()) {
+            if (!ModSupportDb.hasTable(db, TABLE)) {
+                try (Statement statement = db.createStatement()) {
+                    statement.executeUpdate("CREATE TABLE " + TABLE + " (CONTRACTID BIGINT NOT NULL, CREATUREID BIGINT NOT NULL, PRIMARY KEY (CONTRACTID, CREATUREID))");
+                }
+            }
+
+            try (Statement statement = db.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT DISTINCT CONTRACTID FROM " + TABLE)) {
+                while (rs.next()) {
+                    contractIds.add(rs.getLong(1));
+                }
+            }
+        } catch (SQLException e) {
+            logger.severe("Could not create animal contract table.");
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public long[] load(Item contract) {
+        long contractId = contract.getWurmId();
+        if (!hasRows(contractId)) {
+            return importInscription(contract);
+        }
+        return loadRows(contractId);
+    }
+
+    long[] loadRows(long contractId) {
+        if (!hasRows(contractId)) {
+            return new long[0];
+        }
+
+        long[] ids = new long[16];
+        int count = 0;
+        try (Connection db = ModSupportDb.getModSupportDb();
+             PreparedStatement ps = db.prepareStatement("SELECT CREATUREID FROM " + TABLE + " WHERE CONTRACTID=?")) {
+            ps.setLong(1, contractId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (count == ids.length) {
+                        ids = Arrays.copyOf(ids, count * 2);
+                    }
+                    ids[count++] = rs.getLong(1);
+                }
+            }
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Could not load animal contract (" + contractId + ").", e);
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * Moves ids from a contract written by the inscription store into the table, then clears the inscription so it
+     * is not imported again.
+     */
+    private long[] importInscription(Item contract) {
+        InscriptionData inscription = contract.getInscription();
+        if (inscription == null || inscription.getInscription().isEmpty() || inscription.getInscription().equals(ExpandingContractStore.MARKER)) {
+            return new long[0];
+        }
+
+        long[] ids = ContractCodec.decode(inscription.getInscription());
+        save(contract, ids);
+        contract.setInscription("", "");
+        return ids;
+    }
+
+    @Override
+    public void save(Item contract, long[] creatureIds) {
+        long contractId = contract.getWurmId();
+        try (Connection db = ModSupportDb.getModSupportDb()) {
+            boolean autoCommit = db.getAutoCommit();
+            db.setAutoCommit(false);
+            try {
+                try (PreparedStatement ps = db.prepareStatement("DELETE FROM " + TABLE + " WHERE CONTRACTID=?")) {
+                    ps.setLong(1, contractId);
+                    ps.executeUpdate();
+                }
+                try (PreparedStatement ps = db.prepareStatement("INSERT OR IGNORE INTO " + TABLE + " (CONTRACTID, CREATUREID) VALUES (?, ?)")) {
+                    for (long creatureId : creatureIds) {
+                        ps.setLong(1, contractId);
+                        ps.setLong(2, creatureId);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                db.commit();
+            } catch (SQLException e) {
+                db.rollback();
+                throw e;
+            } finally {
+                db.setAutoCommit(autoCommit);
+            }
+            updateContractIds(contractId, creatureIds.length != 0);
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Could not save animal contract (" + contractId + ").", e);
+        }
+        revisions.changed(contractId);
+    }
+
+    @Override
+    public void add(Item contract, long[] creatureIds, long creatureId) {
+        long contractId = contract.getWurmId();
+        try (Connection db = ModSupportDb.getModSupportDb();
+             PreparedStatement ps = db.prepareStatement("INSERT OR IGNORE INTO " + TABLE + " (CONTRACTID, CREATUREID) VALUES (?, ?)")) {
+            ps.setLong(1, contractId);
+            ps.setLong(2, creatureId);
+            ps.executeUpdate();
+            updateContractIds(contractId, true);
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Could not add creature (" + creatureId + ") to animal contract (" + contractId + ").", e);
+        }
+        revisions.changed(contractId);
+    }
+
+    @Override
+    public void remove(Item contract, long[] creatureIds, long creatureId) {
+        long contractId = contract.getWurmId();
+        try (Connection db = ModSupportDb.getModSupportDb();
+             PreparedStatement ps = db.prepareStatement("DELETE FROM " + TABLE + " WHERE CONTRACTID=? AND CREATUREID=?")) {
+            ps.setLong(1, contractId);
+            ps.setLong(2, creatureId);
+            ps.executeUpdate();
+            updateContractIds(contractId, creatureIds.length != 0);
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Could not remove creature (" + creatureId + ") from animal contract (" + contractId + ").", e);
+        }
+        revisions.changed(contractId);
+    }
+
+    @Override
+    public void delete(long contractId) {
+        if (!hasRows(contractId)) {
+            return;
+        }
+        try (Connection db = ModSupportDb.getModSupportDb();
+             PreparedStatement ps = db.prepareStatement("DELETE FROM " + TABLE + " WHERE CONTRACTID=?")) {
+            ps.setLong(1, contractId);
+            ps.executeUpdate();
+            updateContractIds(contractId, false);
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Could not delete animal contract (" + contractId + ").", e);
+        }
+        revisions.changed(contractId);
+    }
+
+    @Override
+    public String revision(Item contract) {
+        return revisions.get(contract.getWurmId());
+    }
+
+    boolean hasRows(long contractId) {
+        synchronized (contractIds) {
+            return contractIds.contains(contractId);
+        }
+    }
+
+    private void updateContractIds(long contractId, boolean hasRows) {
+        synchronized (contractIds) {
+            if (hasRows) {
+                contractIds.add(contractId);
+            } else {
+                contractIds.remove(contractId);
+            }
+        }
+    }
+}
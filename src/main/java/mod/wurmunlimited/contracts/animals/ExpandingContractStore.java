@@ -0,0 +1,111 @@
+package mod.wurmunlimited.contracts.animals;
+
+import com.wurmonline.server.Items;
+import com.wurmonline.server.NoSuchItemException;
+import com.wurmonline.server.items.InscriptionData;
+import com.wurmonline.server.items.Item;
+
+/**
+ * Keeps contracts in the item inscription while they fit, and moves them to database rows once they outgrow it.
+ * The inscription of a moved contract is set to MARKER.  The database store is only created when first needed, which
+ * may be from a prewarm thread as well as the server thread.
+ */
+public class ExpandingContractStore implements ContractStore {
+    // Written by earlier versions too, so it keeps the first format's prefix.
+    static final String MARKER = ContractCodec.PREFIX_V1 + "*";
+    private final InscriptionContractStore inscriptions = new InscriptionContractStore();
+    private volatile DatabaseContractStore database;
+
+    private DatabaseContractStore database() {
+        DatabaseContractStore store = database;
+        if (store == null) {
+            synchronized (this) {
+                store = database;
+                if (store == null) {
+                    store = new DatabaseContractStore();
+                    database = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    private static boolean isExpanded(Item contract) {
+        InscriptionData inscription = contract.getInscription();
+        return inscription != null && MARKER.equals(inscription.getInscription());
+    }
+
+    @Override
+    public long[] load(Item contract) {
+        if (isExpanded(contract)) {
+            return database().loadRows(contract.getWurmId());
+        }
+        return inscriptions.load(contract);
+    }
+
+    @Override
+    public void save(Item contract, long[] creatureIds) {
+        boolean expanded = isExpanded(contract);
+        try {
+            inscriptions.checkCapacity(creatureIds);
+        } catch (ContractFullException e) {
+            database().save(contract, creatureIds);
+            if (!expanded) {
+                contract.setInscription(MARKER, "");
+            }
+            return;
+        }
+
+        try {
+            inscriptions.save(contract, creatureIds);
+        } catch (ContractFullException ignored) {}
+        // ^ Already checked.
+        if (expanded) {
+            database().delete(contract.getWurmId());
+        }
+    }
+
+    @Override
+    public void add(Item contract, long[] creatureIds, long creatureId) {
+        if (isExpanded(contract)) {
+            database().add(contract, creatureIds, creatureId);
+        } else {
+            save(contract, creatureIds);
+        }
+    }
+
+    @Override
+    public void remove(Item contract, long[] creatureIds, long creatureId) {
+        if (isExpanded(contract)) {
+            database().remove(contract, creatureIds, creatureId);
+        } else {
+            save(contract, creatureIds);
+        }
+    }
+
+    @Override
+    public void delete(long contractId) {
+        DatabaseContractStore store = database;
+        if (store == null) {
+            // Only expanded contracts have rows, so there is no need to create the database store for anything else.
+            try {
+                if (!isExpanded(Items.getItem(contractId))) {
+                    return;
+                }
+            } catch (NoSuchItemException e) {
+                return;
+            }
+            store = database();
+        }
+        store.delete(contractId);
+    }
+
+    @Override
+    public String revision(Item contract) {
+        if (isExpanded(contract)) {
+            // The inscription stays MARKER while the rows change.
+            return MARKER + database().revision(contract);
+        }
+        return inscriptions.revision(contract);
+    }
+}
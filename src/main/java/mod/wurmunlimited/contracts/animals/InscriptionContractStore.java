@@ -0,0 +1,65 @@
+package mod.wurmunlimited.contracts.animals;
+
+import com.wurmonline.server.items.InscriptionData;
+import com.wurmonline.server.items.Item;
+
+import java.util.logging.Logger;
+
+/**
+ * Stores contract ids in the inscription of the contract item.
+ */
+public class InscriptionContractStore implements ContractStore {
+    private static final Logger logger = Logger.getLogger(InscriptionContractStore.class.getName());
+    private static final int MAX_INSCRIPTION_LENGTH = 500;
+
+    @Override
+    public long[] load(Item contract) {
+        InscriptionData inscription = contract.getInscription();
+        if (inscription == null) {
+            contract.setInscription("", "");
+            return new long[0];
+        }
+
+        String str = inscription.getInscription();
+        long[] ids = ContractCodec.decode(str);
+        // Nothing is written back for text that held no ids, such as the marker left by ExpandingContractStore.
+        if (ids.length != 0 && ContractCodec.isLegacy(str)) {
+            try {
+                save(contract, ids);
+            } catch (ContractFullException e) {
+                logger.warning("Could not convert animal contract (" + contract.getWurmId() + ") to the current format.");
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public void save(Item contract, long[] creatureIds) throws ContractFullException {
+        contract.setInscription(encode(creatureIds), "");
+    }
+
+    @Override
+    public void checkCapacity(long[] creatureIds) throws ContractFullException {
+        encode(creatureIds);
+    }
+
+    private static String encode(long[] creatureIds) throws ContractFullException {
+        String inscription = ContractCodec.encode(creatureIds);
+        if (inscription.length() > MAX_INSCRIPTION_LENGTH) {
+            throw new ContractFullException("Contract already has too many values.");
+        }
+        return inscription;
+    }
+
+    @Override
+    public double usage(Item contract) {
+        InscriptionData inscription = contract.getInscription();
+        return inscription == null ? 0 : Math.min(1, (double)inscription.getInscription().length() / MAX_INSCRIPTION_LENGTH);
+    }
+
+    @Override
+    public String revision(Item contract) {
+        InscriptionData inscription = contract.getInscription();
+        return inscription == null ? "" : inscription.getInscription();
+    }
+}
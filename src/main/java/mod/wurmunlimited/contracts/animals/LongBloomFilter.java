@@ -0,0 +1,78 @@
+package mod.wurmunlimited.contracts.animals;
+
+/**
+ * Blocked bloom filter over primitive longs.  Each id sets two bits in a single 64-bit word, so a lookup is one array
+ * read and a mask test.
+ *
+ * Bits are only ever set, never cleared, so ids can be added while other threads read the filter.  Removed ids stay
+ * in the filter as false positives until it is rebuilt; needsRebuild reports when that, or growth past capacity, has
+ * pushed the false positive rate up.
+ */
+class LongBloomFilter {
+    private static final int BITS_PER_ID = 8;
+    private static final int MIN_CAPACITY = 1024;
+    private final long[] words;
+    private final int wordMask;
+    private final int capacity;
+    private int removals;
+
+    LongBloomFilter(int capacity) {
+        this.capacity = Math.max(MIN_CAPACITY, capacity);
+        // The word index is taken from 24 bits of the hash.
+        int needed = (int)Math.min(1 << 24, ((long)this.capacity * BITS_PER_ID + 63) / 64);
+        int wordCount = Integer.highestOneBit(needed);
+        if (wordCount < needed) {
+            wordCount <<= 1;
+        }
+        words = new long[wordCount];
+        wordMask = wordCount - 1;
+    }
+
+    /**
+     * Builds a filter for ids with room for the set to double before it needs rebuilding.
+     */
+    static LongBloomFilter of(long[] ids) {
+        LongBloomFilter filter = new LongBloomFilter(ids.length * 2);
+        for (long id : ids) {
+            filter.add(id);
+        }
+        return filter;
+    }
+
+    /**
+     * The SplitMix64 finalizer.  Wurm ids only differ above bit 24, and a single multiply leaves the low bits of the
+     * hash, which pick the bits within a word, the same for every id.
+     */
+    private static long mix(long id) {
+        long h = (id ^ (id >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+
+    private static long bits(long h) {
+        return 1L << (h & 63) | 1L << ((h >>> 6) & 63);
+    }
+
+    boolean mightContain(long id) {
+        long h = mix(id);
+        long bits = bits(h);
+        return (words[(int)(h >>> 40) & wordMask] & bits) == bits;
+    }
+
+    void add(long id) {
+        long h = mix(id);
+        words[(int)(h >>> 40) & wordMask] |= bits(h);
+    }
+
+    void removed() {
+        ++removals;
+    }
+
+    boolean needsRebuild(int size) {
+        return size > capacity || removals > capacity / 2;
+    }
+
+    long memoryBytes() {
+        return 16 + words.length * 8L + 24;
+    }
+}
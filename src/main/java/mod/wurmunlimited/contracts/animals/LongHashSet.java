@@ -0,0 +1,184 @@
+package mod.wurmunlimited.contracts.animals;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing set of primitive longs using linear probing and backward-shift deletion.
+ * 0 is used as the empty slot marker and is tracked separately, so any long value can be stored.
+ */
+class LongHashSet {
+    private static final int MIN_CAPACITY = 16;
+    private static final float MAX_LOAD = 0.75f;
+    private long[] keys;
+    private int mask;
+    private int size;
+    private boolean hasZero;
+
+    LongHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    LongHashSet(int expected) {
+        int capacity = capacityFor(expected);
+        keys = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    private LongHashSet(LongHashSet other) {
+        keys = other.keys.clone();
+        mask = other.mask;
+        size = other.size;
+        hasZero = other.hasZero;
+    }
+
+    private static int capacityFor(int expected) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * MAX_LOAD < expected) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32));
+    }
+
+    boolean contains(long key) {
+        if (key == 0) {
+            return hasZero;
+        }
+        long[] keys = this.keys;
+        int mask = this.mask;
+        int pos = mix(key) & mask;
+        long current;
+        while ((current = keys[pos]) != 0) {
+            if (current == key) {
+                return true;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return false;
+    }
+
+    boolean add(long key) {
+        if (key == 0) {
+            if (hasZero) {
+                return false;
+            }
+            hasZero = true;
+            ++size;
+            return true;
+        }
+        int pos = mix(key) & mask;
+        long current;
+        while ((current = keys[pos]) != 0) {
+            if (current == key) {
+                return false;
+            }
+            pos = (pos + 1) & mask;
+        }
+        keys[pos] = key;
+        if (++size > keys.length * MAX_LOAD) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    boolean remove(long key) {
+        if (key == 0) {
+            if (!hasZero) {
+                return false;
+            }
+            hasZero = false;
+            --size;
+            return true;
+        }
+        int pos = mix(key) & mask;
+        long current;
+        while ((current = keys[pos]) != 0) {
+            if (current == key) {
+                shiftKeys(pos);
+                --size;
+                return true;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return false;
+    }
+
+    private void shiftKeys(int pos) {
+        int last;
+        long current;
+        while (true) {
+            last = pos;
+            pos = (pos + 1) & mask;
+            while (true) {
+                if ((current = keys[pos]) == 0) {
+                    keys[last] = 0;
+                    return;
+                }
+                int slot = mix(current) & mask;
+                if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[last] = current;
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] old = keys;
+        keys = new long[capacity];
+        mask = capacity - 1;
+        for (long key : old) {
+            if (key != 0) {
+                int pos = mix(key) & mask;
+                while (keys[pos] != 0) {
+                    pos = (pos + 1) & mask;
+                }
+                keys[pos] = key;
+            }
+        }
+    }
+
+    LongHashSet copy() {
+        return new LongHashSet(this);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        Arrays.fill(keys, 0);
+        hasZero = false;
+        size = 0;
+    }
+
+    long[] toArray() {
+        long[] values = new long[size];
+        int i = 0;
+        if (hasZero) {
+            values[i++] = 0;
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                values[i++] = key;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Approximate heap size of the backing table in bytes.
+     */
+    long memoryBytes() {
+        return (long)keys.length * Long.BYTES;
+    }
+}
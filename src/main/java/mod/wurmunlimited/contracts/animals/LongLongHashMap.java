@@ -0,0 +1,171 @@
+package mod.wurmunlimited.contracts.animals;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from primitive long to primitive long, using the same layout as LongHashSet with a parallel
+ * values array.  get returns missingValue for keys that are not present.
+ */
+class LongLongHashMap {
+    private static final int MIN_CAPACITY = 16;
+    private static final float MAX_LOAD = 0.75f;
+    private final long missingValue;
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+    private boolean hasZero;
+    private long zeroValue;
+
+    LongLongHashMap(long missingValue) {
+        this.missingValue = missingValue;
+        keys = new long[MIN_CAPACITY];
+        values = new long[MIN_CAPACITY];
+        mask = MIN_CAPACITY - 1;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32));
+    }
+
+    private int indexOf(long key) {
+        long[] keys = this.keys;
+        int mask = this.mask;
+        int pos = mix(key) & mask;
+        long current;
+        while ((current = keys[pos]) != 0) {
+            if (current == key) {
+                return pos;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return -1;
+    }
+
+    boolean containsKey(long key) {
+        if (key == 0) {
+            return hasZero;
+        }
+        return indexOf(key) >= 0;
+    }
+
+    long get(long key) {
+        if (key == 0) {
+            return hasZero ? zeroValue : missingValue;
+        }
+        int pos = indexOf(key);
+        return pos < 0 ? missingValue : values[pos];
+    }
+
+    /**
+     * Returns the previous value, or missingValue if there was none.
+     */
+    long put(long key, long value) {
+        if (key == 0) {
+            long previous = hasZero ? zeroValue : missingValue;
+            if (!hasZero) {
+                hasZero = true;
+                ++size;
+            }
+            zeroValue = value;
+            return previous;
+        }
+        int pos = mix(key) & mask;
+        long current;
+        while ((current = keys[pos]) != 0) {
+            if (current == key) {
+                long previous = values[pos];
+                values[pos] = value;
+                return previous;
+            }
+            pos = (pos + 1) & mask;
+        }
+        keys[pos] = key;
+        values[pos] = value;
+        if (++size > keys.length * MAX_LOAD) {
+            rehash(keys.length << 1);
+        }
+        return missingValue;
+    }
+
+    /**
+     * Returns the removed value, or missingValue if the key was not present.
+     */
+    long remove(long key) {
+        if (key == 0) {
+            if (!hasZero) {
+                return missingValue;
+            }
+            hasZero = false;
+            --size;
+            return zeroValue;
+        }
+        int pos = indexOf(key);
+        if (pos < 0) {
+            return missingValue;
+        }
+        long previous = values[pos];
+        shiftKeys(pos);
+        --size;
+        return previous;
+    }
+
+    private void shiftKeys(int pos) {
+        int last;
+        long current;
+        while (true) {
+            last = pos;
+            pos = (pos + 1) & mask;
+            while (true) {
+                if ((current = keys[pos]) == 0) {
+                    keys[last] = 0;
+                    return;
+                }
+                int slot = mix(current) & mask;
+                if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[last] = current;
+            values[last] = values[pos];
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int pos = mix(key) & mask;
+                while (keys[pos] != 0) {
+                    pos = (pos + 1) & mask;
+                }
+                keys[pos] = key;
+                values[pos] = oldValues[i];
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(keys, 0);
+        hasZero = false;
+        size = 0;
+    }
+
+    /**
+     * Approximate heap size of the backing tables in bytes.
+     */
+    long memoryBytes() {
+        return (long)keys.length * Long.BYTES * 2;
+    }
+}
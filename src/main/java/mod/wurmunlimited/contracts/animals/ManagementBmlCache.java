@@ -0,0 +1,220 @@
+package mod.wurmunlimited.contracts.animals;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * Bounded LRU cache of rendered management question BML.
+ *
+ * Each contract has a version that is bumped when the contract changes or when one of its creatures is renamed or has
+ * a trait changed.  Entries are only used while both the version and the contract instance they were built from are
+ * current.  BML is built with a placeholder question id that is swapped for the real one on the way out.
+ *
+ * Versions are only kept for contracts that have cached entries, and are dropped with their last entry.  Contracts
+ * without entries share one version, which moves whenever any of them changes or a version is dropped.  Versions come
+ * from a single clock so a value is never reused, and BML built while its version moved is not cached.
+ *
+ * The ids of the listed creatures are cached along with the BML, as the checkboxes are numbered by position in that
+ * list and a list built again later may not be in the same order.
+ */
+public class ManagementBmlCache {
+    private static final int PLACEHOLDER_ID = Integer.MIN_VALUE;
+    private static final String PLACEHOLDER = Integer.toString(PLACEHOLDER_ID);
+    private static final LongLongHashMap versions = new LongLongHashMap(0);
+    private static final LongLongHashMap entryCounts = new LongLongHashMap(0);
+    private static long clock = 0;
+    private static long untrackedVersion = 0;
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final LongAdder buildNanos = new LongAdder();
+    private static int maxSize = 128;
+    private static final LinkedHashMap<String, CachedBml> entries = new LinkedHashMap<String, CachedBml>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedBml> eldest) {
+            if (size() > maxSize) {
+                released(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * Rendered BML and the ids of every creature it lists, in list order.  The ids must not be modified.
+     */
+    public static class Page {
+        private final String bml;
+        private final long[] creatureIds;
+
+        public Page(String bml, long[] creatureIds) {
+            this.bml = bml;
+            this.creatureIds = creatureIds;
+        }
+
+        public String getBml() {
+            return bml;
+        }
+
+        public long[] getCreatureIds() {
+            return creatureIds;
+        }
+    }
+
+    private static class CachedBml {
+        private final long contractId;
+        private final AnimalContract contract;
+        private final long version;
+        private final Page page;
+
+        private CachedBml(long contractId, AnimalContract contract, long version, Page page) {
+            this.contractId = contractId;
+            this.contract = contract;
+            this.version = version;
+            this.page = page;
+        }
+    }
+
+    private ManagementBmlCache() {}
+
+    /**
+     * Returns the cached page for key if it is still current, otherwise builds it with builder and caches the result.
+     * builder is given the question id to build with.
+     */
+    public static Page get(AnimalContract contract, long contractId, String key, int questionId, IntFunction<Page> builder) {
+        if (maxSize <= 0) {
+            return build(builder, questionId);
+        }
+
+        CachedBml entry;
+        long version;
+        synchronized (ManagementBmlCache.class) {
+            version = versionOf(contractId);
+            entry = entries.get(key);
+        }
+        if (entry != null && entry.contract == contract && entry.version == version) {
+            hits.increment();
+            return withQuestionId(entry.page, questionId);
+        }
+
+        misses.increment();
+        Page page = build(builder, PLACEHOLDER_ID);
+        if (!page.bml.contains(PLACEHOLDER)) {
+            // The id was not written where expected, so this BML cannot be reused.
+            return build(builder, questionId);
+        }
+        synchronized (ManagementBmlCache.class) {
+            if (versionOf(contractId) == version) {
+                versions.put(contractId, version);
+                entryCounts.put(contractId, entryCounts.get(contractId) + 1);
+                CachedBml replaced = entries.put(key, new CachedBml(contractId, contract, version, page));
+                if (replaced != null) {
+                    released(replaced);
+                }
+            }
+        }
+        return withQuestionId(page, questionId);
+    }
+
+    private static long versionOf(long contractId) {
+        return versions.containsKey(contractId) ? versions.get(contractId) : untrackedVersion;
+    }
+
+    /**
+     * Must be called holding the class lock whenever an entry leaves the cache.
+     */
+    private static void released(CachedBml entry) {
+        long remaining = entryCounts.get(entry.contractId) - 1;
+        if (remaining > 0) {
+            entryCounts.put(entry.contractId, remaining);
+        } else {
+            entryCounts.remove(entry.contractId);
+            versions.remove(entry.contractId);
+            untrackedVersion = ++clock;
+        }
+    }
+
+    private static Page withQuestionId(Page page, int questionId) {
+        return new Page(page.bml.replace(PLACEHOLDER, Integer.toString(questionId)), page.creatureIds);
+    }
+
+    private static Page build(IntFunction<Page> builder, int questionId) {
+        long start = System.nanoTime();
+        Page page = builder.apply(questionId);
+        buildNanos.add(System.nanoTime() - start);
+        return page;
+    }
+
+    public static synchronized void contractChanged(long contractId) {
+        if (versions.containsKey(contractId)) {
+            versions.put(contractId, ++clock);
+        } else {
+            untrackedVersion = ++clock;
+        }
+    }
+
+    public static void creatureChanged(long creatureId) {
+        long contractId = CreatureContracts.getContractFor(creatureId);
+        if (contractId != CreatureContracts.NONE) {
+            contractChanged(contractId);
+        }
+    }
+
+    static synchronized void contractDestroyed(long contractId) {
+        entries.values().removeIf(entry -> entry.contractId == contractId);
+        versions.remove(contractId);
+        entryCounts.remove(contractId);
+        untrackedVersion = ++clock;
+    }
+
+    static synchronized void setMaxSize(int size) {
+        maxSize = size;
+        Iterator<CachedBml> iterator = entries.values().iterator();
+        while (entries.size() > Math.max(maxSize, 0) && iterator.hasNext()) {
+            CachedBml entry = iterator.next();
+            iterator.remove();
+            released(entry);
+        }
+    }
+
+    static synchronized void clear() {
+        versions.clear();
+        entryCounts.clear();
+        entries.clear();
+        untrackedVersion = ++clock;
+    }
+
+    static synchronized int size() {
+        return entries.size();
+    }
+
+    static synchronized int versionCount() {
+        return versions.size();
+    }
+
+    public static long getHits() {
+        return hits.sum();
+    }
+
+    public static long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Fraction of lookups served from the cache, or 0 if there have been none.
+     */
+    public static double getHitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double)hit / total;
+    }
+
+    /**
+     * Total time spent building BML, including builds that were not cached.
+     */
+    public static long getBuildNanos() {
+        return buildNanos.sum();
+    }
+}
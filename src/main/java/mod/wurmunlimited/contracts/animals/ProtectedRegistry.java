@@ -0,0 +1,213 @@
+package mod.wurmunlimited.contracts.animals;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Holds the wurm ids of all creatures currently assigned to a contract.
+ * isProtected is called directly from the bytecode woven into CreatureStatus.pollAge, so it must stay static and cheap.
+ *
+ * Reads never lock.  Writers copy the current set, modify the copy and publish it, so a published set is never
+ * modified and pollers always see a consistent snapshot.  The set is sharded by id block (see ShardedLongSet), so a
+ * write only copies the shards it touches.  Changes are passed on to AgeFreeze for pollage_hook=flag while still holding
+ * writeLock, so the flags cannot end up out of order with the published snapshots.
+ *
+ * Most lookups are for creatures that are not on a contract, so an optional bloom filter answers those before the set
+ * is consulted.  The filter is shared between snapshots and bits for an id are set before the snapshot holding that
+ * id is published, so a reader never misses an id that is in the snapshot it read.
+ */
+public final class ProtectedRegistry {
+    static final Object writeLock = new Object();
+    private static volatile Snapshot snapshot = new Snapshot(new ShardedLongSet(1), LongBloomFilter.of(new long[0]));
+    private static final LongAdder lookups = new LongAdder();
+    private static final LongAdder protectedHits = new LongAdder();
+    private static final LongAdder falsePositives = new LongAdder();
+
+    private static class Snapshot {
+        private final ShardedLongSet ids;
+        private final LongBloomFilter filter;
+
+        private Snapshot(ShardedLongSet ids, LongBloomFilter filter) {
+            this.ids = ids;
+            this.filter = filter;
+        }
+    }
+
+    private ProtectedRegistry() {}
+
+    public static boolean isProtected(long wurmId) {
+        if (ContractMetrics.enabled()) {
+            return isProtectedCounted(snapshot, wurmId);
+        }
+        return contains(wurmId);
+    }
+
+    /**
+     * Same as isProtected but never counted, for the mod's own checks so they don't skew the pollAge lookup metrics.
+     */
+    static boolean contains(long wurmId) {
+        Snapshot current = snapshot;
+        LongBloomFilter filter = current.filter;
+        if (filter != null && !filter.mightContain(wurmId)) {
+            return false;
+        }
+        return current.ids.contains(wurmId);
+    }
+
+    private static boolean isProtectedCounted(Snapshot current, long wurmId) {
+        lookups.increment();
+        LongBloomFilter filter = current.filter;
+        if (filter != null && !filter.mightContain(wurmId)) {
+            return false;
+        }
+        boolean found = current.ids.contains(wurmId);
+        if (found) {
+            protectedHits.increment();
+        } else if (filter != null) {
+            falsePositives.increment();
+        }
+        return found;
+    }
+
+    /**
+     * Publishes ids with the current filter updated for the change, or a rebuilt filter if it has degraded.
+     * Must be called holding writeLock, after all ids have been added to the filter with added.
+     */
+    private static void publish(ShardedLongSet ids) {
+        LongBloomFilter filter = snapshot.filter;
+        if (filter != null && filter.needsRebuild(ids.size())) {
+            filter = LongBloomFilter.of(ids.toArray());
+        }
+        snapshot = new Snapshot(ids, filter);
+    }
+
+    private static void added(long wurmId) {
+        LongBloomFilter filter = snapshot.filter;
+        if (filter != null) {
+            filter.add(wurmId);
+        }
+    }
+
+    private static void removed() {
+        LongBloomFilter filter = snapshot.filter;
+        if (filter != null) {
+            filter.removed();
+        }
+    }
+
+    public static void add(long wurmId) {
+        synchronized (writeLock) {
+            if (!snapshot.ids.contains(wurmId)) {
+                ShardedLongSet copy = snapshot.ids.copyForWrite();
+                copy.add(wurmId);
+                added(wurmId);
+                publish(copy);
+            }
+            AgeFreeze.setFrozen(wurmId, true);
+        }
+    }
+
+    public static void addAll(long[] wurmIds) {
+        synchronized (writeLock) {
+            ShardedLongSet copy = snapshot.ids.copyForWrite();
+            for (long wurmId : wurmIds) {
+                if (copy.add(wurmId)) {
+                    added(wurmId);
+                }
+            }
+            publish(copy);
+            AgeFreeze.setFrozen(wurmIds, true);
+        }
+    }
+
+    public static void remove(long wurmId) {
+        synchronized (writeLock) {
+            if (snapshot.ids.contains(wurmId)) {
+                ShardedLongSet copy = snapshot.ids.copyForWrite();
+                copy.remove(wurmId);
+                removed();
+                publish(copy);
+            }
+            AgeFreeze.setFrozen(wurmId, false);
+        }
+    }
+
+    public static void removeAll(long[] wurmIds) {
+        synchronized (writeLock) {
+            ShardedLongSet copy = snapshot.ids.copyForWrite();
+            for (long wurmId : wurmIds) {
+                if (copy.remove(wurmId)) {
+                    removed();
+                }
+            }
+            publish(copy);
+            AgeFreeze.setFrozen(wurmIds, false);
+        }
+    }
+
+    public static int size() {
+        return snapshot.ids.size();
+    }
+
+    static long memoryBytes() {
+        Snapshot current = snapshot;
+        return current.ids.memoryBytes() + (current.filter == null ? 0 : current.filter.memoryBytes());
+    }
+
+    static void clear() {
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            snapshot = new Snapshot(new ShardedLongSet(current.ids.getShardCount()),
+                    current.filter == null ? null : LongBloomFilter.of(new long[0]));
+        }
+    }
+
+    /**
+     * Redistributes the current ids over shardCount shards, which must be a power of two.
+     */
+    static void setShardCount(int shardCount) {
+        synchronized (writeLock) {
+            ShardedLongSet resharded = new ShardedLongSet(shardCount);
+            for (long wurmId : snapshot.ids.toArray()) {
+                resharded.add(wurmId);
+            }
+            snapshot = new Snapshot(resharded, snapshot.filter);
+        }
+    }
+
+    static int getShardCount() {
+        return snapshot.ids.getShardCount();
+    }
+
+    static void setFilterEnabled(boolean enabled) {
+        synchronized (writeLock) {
+            ShardedLongSet ids = snapshot.ids;
+            snapshot = new Snapshot(ids, enabled ? LongBloomFilter.of(ids.toArray()) : null);
+        }
+    }
+
+    static boolean isFilterEnabled() {
+        return snapshot.filter != null;
+    }
+
+    static long getLookups() {
+        return lookups.sum();
+    }
+
+    static long getFalsePositives() {
+        return falsePositives.sum();
+    }
+
+    /**
+     * False positives as a fraction of lookups for unprotected creatures, counted while metrics are enabled.
+     */
+    static double getFalsePositiveRate() {
+        long negatives = lookups.sum() - protectedHits.sum();
+        return negatives <= 0 ? 0 : (double)falsePositives.sum() / negatives;
+    }
+
+    static void resetCounters() {
+        lookups.reset();
+        protectedHits.reset();
+        falsePositives.reset();
+    }
+}
@@ -0,0 +1,114 @@
+package mod.wurmunlimited.contracts.animals;
+
+import java.util.Arrays;
+
+/**
+ * Set of wurm ids split into LongHashSet shards by id block.
+ *
+ * Wurm ids are laid out as counter << COUNTER_SHIFT | serverId << 8 | type, and creatures are numbered in the order
+ * they are created.  Everything below the counter is the same for every creature on a server, so ids are sharded by
+ * blocks of 2^BLOCK_BITS consecutive counter values.  Creatures that were spawned together share a shard, and lookups
+ * for them stay within one small table.  With one shard this behaves as a single
+ * LongHashSet.
+ *
+ * A set is built by copying a published set with copyForWrite and then changing the copy.  Only shards that change
+ * are copied, so writes cost the size of a shard rather than the whole set.  A published set must not be changed.
+ */
+class ShardedLongSet {
+    static final int BLOCK_BITS = 6;
+    static final int COUNTER_SHIFT = 24;
+    private final LongHashSet[] shards;
+    private final int shardMask;
+    private final boolean[] owned;
+    private int size;
+
+    ShardedLongSet(int shardCount) {
+        if (shardCount < 1 || Integer.bitCount(shardCount) != 1) {
+            throw new IllegalArgumentException("Shard count must be a positive power of two.");
+        }
+        shards = new LongHashSet[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new LongHashSet();
+        }
+        shardMask = shardCount - 1;
+        owned = new boolean[shardCount];
+        Arrays.fill(owned, true);
+    }
+
+    private ShardedLongSet(ShardedLongSet other) {
+        shards = other.shards.clone();
+        shardMask = other.shardMask;
+        owned = new boolean[shards.length];
+        size = other.size;
+    }
+
+    static int shardFor(long wurmId, int shardMask) {
+        return (int)(wurmId >>> (COUNTER_SHIFT + BLOCK_BITS)) & shardMask;
+    }
+
+    boolean contains(long wurmId) {
+        return shards[shardFor(wurmId, shardMask)].contains(wurmId);
+    }
+
+    /**
+     * Returns a copy that shares all shards with this set until they are changed.
+     */
+    ShardedLongSet copyForWrite() {
+        return new ShardedLongSet(this);
+    }
+
+    private LongHashSet writable(int shard) {
+        if (!owned[shard]) {
+            shards[shard] = shards[shard].copy();
+            owned[shard] = true;
+        }
+        return shards[shard];
+    }
+
+    boolean add(long wurmId) {
+        int shard = shardFor(wurmId, shardMask);
+        if (shards[shard].contains(wurmId)) {
+            return false;
+        }
+        writable(shard).add(wurmId);
+        ++size;
+        return true;
+    }
+
+    boolean remove(long wurmId) {
+        int shard = shardFor(wurmId, shardMask);
+        if (!shards[shard].contains(wurmId)) {
+            return false;
+        }
+        writable(shard).remove(wurmId);
+        --size;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getShardCount() {
+        return shards.length;
+    }
+
+    long[] toArray() {
+        long[] all = new long[size];
+        int i = 0;
+        for (LongHashSet shard : shards) {
+            long[] ids = shard.toArray();
+            System.arraycopy(ids, 0, all, i, ids.length);
+            i += ids.length;
+        }
+        return all;
+    }
+
+    long memoryBytes() {
+        long bytes = 16 + 16 + shards.length * 8L + shards.length;
+        for (LongHashSet shard : shards) {
+            bytes += shard.memoryBytes();
+        }
+        return bytes;
+    }
+}
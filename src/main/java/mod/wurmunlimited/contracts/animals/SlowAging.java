@@ -0,0 +1,80 @@
+package mod.wurmunlimited.contracts.animals;
+
+/**
+ * Lets protected creatures age at 1/protected_aging_interval of the normal rate instead of not at all.
+ *
+ * pollAge ages a creature by the wurm time since CreatureStatus.lastPolledAge, so skipping calls would not slow it
+ * down.  Instead, when enabled, init weaves FIELD and METHOD into CreatureStatus and the pollAge hooks call METHOD
+ * before every pollAge.  For a protected creature it moves lastPolledAge forward by all but 1/interval of the wurm
+ * time since its previous poll, so pollAge sees its age time pass interval times slower.  FIELD holds how far the
+ * creature has been slowed, so the state lives on each CreatureStatus and polls take no lock.  Unprotected polls
+ * clear FIELD, so time spent off a contract is never slowed.
+ *
+ * An interval of 0 keeps the original behaviour, where protected creatures never age, and nothing is woven.
+ */
+public final class SlowAging {
+    static final String FIELD = "slowAgedUntil";
+    static final String METHOD = "slowAge";
+    private static int interval = 0;
+
+    private SlowAging() {}
+
+    static void setInterval(int polls) {
+        if (polls < 0) {
+            throw new IllegalArgumentException("Aging interval must not be negative.");
+        }
+        interval = polls;
+    }
+
+    static int getInterval() {
+        return interval;
+    }
+
+    static boolean isEnabled() {
+        return interval > 0;
+    }
+
+    /**
+     * Source of METHOD, woven into CreatureStatus along with a long FIELD.
+     */
+    static String methodSource() {
+        return "public void " + METHOD + "(boolean slowed) {" +
+               "    if (!slowed) {" +
+               "        this." + FIELD + " = 0L;" +
+               "        return;" +
+               "    }" +
+               "    long now = com.wurmonline.server.WurmCalendar.currentTime;" +
+               "    long polled = this.lastPolledAge;" +
+               "    this.lastPolledAge = mod.wurmunlimited.contracts.animals.SlowAging.lastPolledAge(polled, this." + FIELD + ", now);" +
+               "    this." + FIELD + " = mod.wurmunlimited.contracts.animals.SlowAging.slowedUntil(polled, this." + FIELD + ", now);" +
+               "}";
+    }
+
+    /**
+     * Time since lastPolledAge or the previous slowed poll, whichever is later, rounded down to a multiple of
+     * interval so that no part of it is lost to rounding.
+     */
+    private static long unslowed(long lastPolledAge, long slowedUntil, long now) {
+        long elapsed = now - Math.max(lastPolledAge, slowedUntil);
+        return elapsed <= 0 ? 0 : elapsed - elapsed % interval;
+    }
+
+    /**
+     * The lastPolledAge to give pollAge so that only 1/interval of the unslowed time counts towards aging.
+     */
+    public static long lastPolledAge(long lastPolledAge, long slowedUntil, long now) {
+        if (lastPolledAge == 0) {
+            // pollAge has not started aging the creature yet.
+            return 0;
+        }
+        long time = unslowed(lastPolledAge, slowedUntil, now);
+        return lastPolledAge + time - time / interval;
+    }
+
+    /**
+     * The new value of FIELD after the poll.
+     */
+    public static long slowedUntil(long lastPolledAge, long slowedUntil, long now) {
+        return Math.max(lastPolledAge, slowedUntil) + unslowed(lastPolledAge, slowedUntil, now);
+    }
+}
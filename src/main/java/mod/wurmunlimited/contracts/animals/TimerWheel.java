@@ -0,0 +1,120 @@
+package mod.wurmunlimited.contracts.animals;
+
+/**
+ * Hashed timer wheel of long ids with deadlines in epoch millis.
+ *
+ * Time is divided into ticks of tickMillis, and an id is held in the slot for the first tick after its deadline,
+ * modulo the number of slots.  advance only visits the slots for ticks that have passed since the last call, so the
+ * cost of a tick is the size of one slot rather than the number of scheduled ids.  Ids whose deadline is one or more
+ * turns of the wheel away stay in their slot when it is visited.  A deadline is never fired early, and at most one tick late.
+ *
+ * Not thread safe.
+ */
+class TimerWheel {
+    private static final long[] NONE = new long[0];
+    private final long tickMillis;
+    private final LongHashSet[] slots;
+    private final int slotMask;
+    // Deadlines are moved up to the next unvisited tick, so the slot for an id can always be found from its deadline.
+    private final LongLongHashMap deadlines = new LongLongHashMap(ContractIndex.NO_DEADLINE);
+    private long currentTick;
+
+    TimerWheel(int slotCount, long tickMillis, long now) {
+        if (slotCount < 1 || Integer.bitCount(slotCount) != 1) {
+            throw new IllegalArgumentException("Slot count must be a positive power of two.");
+        }
+        if (tickMillis < 1) {
+            throw new IllegalArgumentException("Tick length must be positive.");
+        }
+        this.tickMillis = tickMillis;
+        slots = new LongHashSet[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new LongHashSet();
+        }
+        slotMask = slotCount - 1;
+        currentTick = now / tickMillis;
+    }
+
+    /**
+     * The slot for the first tick starting at or after deadline, so an id is due whenever its slot is visited on the
+     * right turn of the wheel.
+     */
+    private LongHashSet slotFor(long deadline) {
+        return slots[(int)((deadline + tickMillis - 1) / tickMillis) & slotMask];
+    }
+
+    /**
+     * Schedules id to fire at deadline, replacing any deadline it already had.  Deadlines that have already passed
+     * fire on the next tick.
+     */
+    void schedule(long id, long deadline) {
+        cancel(id);
+        long effective = Math.max(deadline, (currentTick + 1) * tickMillis);
+        deadlines.put(id, effective);
+        slotFor(effective).add(id);
+    }
+
+    boolean cancel(long id) {
+        long deadline = deadlines.remove(id);
+        if (deadline == ContractIndex.NO_DEADLINE) {
+            return false;
+        }
+        slotFor(deadline).remove(id);
+        return true;
+    }
+
+    boolean isScheduled(long id) {
+        return deadlines.containsKey(id);
+    }
+
+    /**
+     * Returns the ids whose deadline has passed by now and removes them from the wheel.
+     */
+    long[] advance(long now) {
+        long targetTick = now / tickMillis;
+        if (targetTick <= currentTick) {
+            return NONE;
+        }
+
+        LongHashSet fired = null;
+        // After a gap of a full turn every slot has been visited once, so there is no need to go round again.
+        long ticks = Math.min(targetTick - currentTick, slots.length);
+        for (long tick = currentTick + 1; tick <= currentTick + ticks; tick++) {
+            LongHashSet slot = slots[(int)tick & slotMask];
+            if (slot.isEmpty()) {
+                continue;
+            }
+            for (long id : slot.toArray()) {
+                if (deadlines.get(id) <= now) {
+                    if (fired == null) {
+                        fired = new LongHashSet();
+                    }
+                    fired.add(id);
+                    slot.remove(id);
+                    deadlines.remove(id);
+                }
+            }
+        }
+        currentTick = targetTick;
+        return fired == null ? NONE : fired.toArray();
+    }
+
+    int size() {
+        return deadlines.size();
+    }
+
+    void clear() {
+        for (LongHashSet slot : slots) {
+            slot.clear();
+        }
+        deadlines.clear();
+    }
+
+    long memoryBytes() {
+        long bytes = 16 + slots.length * 8L + deadlines.memoryBytes();
+        for (LongHashSet slot : slots) {
+            bytes += slot.memoryBytes();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,117 @@
+package mod.wurmunlimited.contracts.animals;
+
+import com.wurmonline.server.creatures.Creature;
+import com.wurmonline.server.creatures.CreatureStatus;
+import com.wurmonline.server.creatures.Traits;
+
+import java.lang.reflect.Field;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Renders creature traits from the 64-bit trait mask held by CreatureStatus.
+ *
+ * Trait strings are looked up once into a table, and only set bits that have a string are visited.  Knowledge limits
+ * are applied as a mask of the trait bits the viewer can see.
+ */
+public class TraitStrings {
+    private static final Logger logger = Logger.getLogger(TraitStrings.class.getName());
+    public static final String NOT_ENOUGH_SKILL = "You do not have enough skill to see any more.";
+    private static final String[] strings = new String[64];
+    private static final long namedTraits;
+    private static Field traitsField;
+
+    static {
+        long mask = 0;
+        for (int i = 0; i < strings.length; i++) {
+            String traitString = Traits.getTraitString(i);
+            strings[i] = traitString;
+            if (traitString != null && !traitString.isEmpty()) {
+                mask |= 1L << i;
+            }
+        }
+        namedTraits = mask;
+
+        try {
+            traitsField = CreatureStatus.class.getDeclaredField("traits");
+            traitsField.setAccessible(true);
+        } catch (NoSuchFieldException | SecurityException e) {
+            logger.log(Level.WARNING, "Could not access CreatureStatus.traits, falling back to hasTrait.", e);
+            traitsField = null;
+        }
+    }
+
+    private TraitStrings() {}
+
+    public static long getTraitMask(Creature creature) {
+        if (traitsField != null) {
+            try {
+                return traitsField.getLong(creature.getStatus());
+            } catch (IllegalAccessException | IllegalArgumentException e) {
+                logger.log(Level.WARNING, "Could not read CreatureStatus.traits, falling back to hasTrait.", e);
+                traitsField = null;
+            }
+        }
+
+        long mask = 0;
+        for (int i = 0; i < 64; i++) {
+            if (creature.hasTrait(i)) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Trait bits below the knowledge level, matching the original "knowledge > i" check.
+     */
+    static long getVisibleMask(double knowledge) {
+        if (knowledge >= 64) {
+            return -1L;
+        } else if (knowledge <= 0) {
+            return 0;
+        }
+        int visible = (int)Math.ceil(knowledge);
+        return visible >= 64 ? -1L : (1L << visible) - 1;
+    }
+
+    public static int count(Creature creature, double knowledge) {
+        return Long.bitCount(getTraitMask(creature) & namedTraits & getVisibleMask(knowledge));
+    }
+
+    /**
+     * Returns the trait count text and the trait list, one per line.
+     */
+    public static String[] render(Creature creature, double knowledge) {
+        return render(getTraitMask(creature), knowledge);
+    }
+
+    static String[] render(long traits, double knowledge) {
+        long visibleMask = getVisibleMask(knowledge);
+        boolean limited = visibleMask != -1L;
+        long bits = traits & namedTraits & visibleMask;
+        if (bits == 0 && !limited) {
+            return new String[] { "0", "None" };
+        }
+
+        StringBuilder sb = new StringBuilder();
+        int count = 0;
+        while (bits != 0) {
+            if (count > 0) {
+                sb.append('\n');
+            }
+            sb.append(strings[Long.numberOfTrailingZeros(bits)]);
+            bits &= bits - 1;
+            ++count;
+        }
+
+        if (limited) {
+            if (count > 0) {
+                sb.append('\n');
+            }
+            sb.append(NOT_ENOUGH_SKILL);
+            return new String[] { count + "?", sb.toString() };
+        }
+        return new String[] { Integer.toString(count), sb.toString() };
+    }
+}
@@ -8,6 +8,7 @@ import mod.wurmunlimited.contracts.animals.AnimalContract;
 import mod.wurmunlimited.contracts.animals.AnimalContractsObjectsFactory;
 import mod.wurmunlimited.contracts.animals.AnimalContractsMod;
 import mod.wurmunlimited.contracts.animals.ContractFullException;
+import mod.wurmunlimited.contracts.animals.CreatureContracts;
 import org.jetbrains.annotations.Nullable;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -159,4 +160,17 @@ class AssignAnimalActionTests {
         assertBlocked(action.action(act, player, contract, creature, action.getActionId(), 0),
                 "enough space");
     }
+
+    @Test
+    void testActionAnimalOnAnotherContract() throws ContractFullException {
+        Item otherContract = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        AnimalContract.getAnimalContract(otherContract).addCreature(creature);
+        assertEquals(otherContract.getWurmId(), CreatureContracts.getContractFor(creature.getWurmId()));
+
+        assertTrue(action.action(act, player, contract, creature, action.getActionId(), 0));
+        assertFalse(AnimalContract.getAnimalContract(contract).hasCreature(creature));
+        assertTrue(AnimalContract.getAnimalContract(otherContract).hasCreature(creature));
+        assertThat(player, receivedMessageContaining("That animal is already on another contract."));
+        assertThat(player, didNotReceiveMessageContaining(Long.toString(otherContract.getWurmId())));
+    }
 }
@@ -0,0 +1,252 @@
+package com.wurmonline.server.behaviours;
+
+import com.wurmonline.server.creatures.Creature;
+import com.wurmonline.server.items.Item;
+import com.wurmonline.server.players.Player;
+import com.wurmonline.server.villages.Village;
+import com.wurmonline.server.zones.VolaTile;
+import mod.wurmunlimited.contracts.animals.*;
+import org.gotti.wurmunlimited.modloader.ReflectionUtil;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static mod.wurmunlimited.Assert.didNotReceiveMessageContaining;
+import static mod.wurmunlimited.Assert.receivedMessageContaining;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AssignNearbyAnimalsActionTests {
+    private AnimalContractsObjectsFactory factory;
+    private AssignNearbyAnimalsAction action;
+    private Action act = mock(Action.class);
+    private Player player;
+    private Item contract;
+    private final Map<String, VolaTile> tiles = new HashMap<>();
+    private final Map<String, List<Creature>> creatures = new HashMap<>();
+    private final Map<String, Village> villages = new HashMap<>();
+    private ContractStore originalStore;
+    private int saves = 0;
+
+    private class TestTiles implements AssignNearbyAnimalsAction.Tiles {
+        @Override
+        public int safeTileX(int x) {
+            return x;
+        }
+
+        @Override
+        public int safeTileY(int y) {
+            return y;
+        }
+
+        @Override
+        public @Nullable VolaTile getTileOrNull(int x, int y, boolean surfaced) {
+            return tiles.get(x + "," + y);
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        factory = new AnimalContractsObjectsFactory();
+        action = new AssignNearbyAnimalsAction(AnimalContractsMod.getContractTemplateId(), 5, new TestTiles());
+        player = factory.createNewPlayer();
+        contract = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        player.getInventory().insertItem(contract);
+
+        originalStore = ReflectionUtil.getPrivateField(null, AnimalContract.class.getDeclaredField("store"));
+        ReflectionUtil.setPrivateField(null, AnimalContract.class.getDeclaredField("store"), new InscriptionContractStore() {
+            @Override
+            public void save(Item contract, long[] creatureIds) throws ContractFullException {
+                ++saves;
+                super.save(contract, creatureIds);
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        ReflectionUtil.setPrivateField(null, AnimalContract.class.getDeclaredField("store"), originalStore);
+        ReflectionUtil.setPrivateField(null, AnimalContract.class.getDeclaredField("maxCreatures"), 1000);
+    }
+
+    private VolaTile tile(int dx, int dy) {
+        String key = (player.getTileX() + dx) + "," + (player.getTileY() + dy);
+        VolaTile tile = tiles.get(key);
+        if (tile == null) {
+            List<Creature> onTile = new ArrayList<>();
+            creatures.put(key, onTile);
+            tile = mock(VolaTile.class);
+            when(tile.getCreatures()).thenAnswer(i -> onTile.toArray(new Creature[0]));
+            when(tile.getVillage()).thenAnswer(i -> villages.get(key));
+            tiles.put(key, tile);
+        }
+        return tile;
+    }
+
+    private Creature creatureAt(int dx, int dy) {
+        tile(dx, dy);
+        Creature creature = factory.createNewCreature();
+        creatures.get((player.getTileX() + dx) + "," + (player.getTileY() + dy)).add(creature);
+        return creature;
+    }
+
+    private void setVillage(int dx, int dy, Village village) {
+        tile(dx, dy);
+        villages.put((player.getTileX() + dx) + "," + (player.getTileY() + dy), village);
+    }
+
+    private boolean assigned(Creature creature) {
+        return AnimalContract.getAnimalContract(contract).hasCreature(creature);
+    }
+
+    @Test
+    void testGetBehavioursFor() {
+        List<ActionEntry> entries = action.getBehavioursFor(player, contract);
+        assertNotNull(entries);
+        assertEquals(1, entries.size());
+        assertEquals(action.getActionId(), entries.get(0).getNumber());
+    }
+
+    @Test
+    void testGetBehavioursForActiveItem() {
+        List<ActionEntry> entries = action.getBehavioursFor(player, factory.createNewItem(), contract);
+        assertNotNull(entries);
+        assertEquals(1, entries.size());
+    }
+
+    @Test
+    void testGetBehavioursForNotContract() {
+        assertNull(action.getBehavioursFor(player, factory.createNewItem()));
+    }
+
+    @Test
+    void testGetBehavioursForPlayerDoesNotOwnContract() {
+        assertNull(action.getBehavioursFor(player, factory.createNewItem(AnimalContractsMod.getContractTemplateId())));
+    }
+
+    @Test
+    void testActionWrongActionId() {
+        assertFalse(action.action(act, player, contract, (short)(action.getActionId() + 1), 0));
+    }
+
+    @Test
+    void testActionNotOwner() {
+        assertFalse(action.action(act, player, factory.createNewItem(AnimalContractsMod.getContractTemplateId()), action.getActionId(), 0));
+    }
+
+    @Test
+    void testActionAssignsAnimalsWithinRadius() {
+        Creature centre = creatureAt(0, 0);
+        Creature corner = creatureAt(-5, 5);
+        Creature edge = creatureAt(5, 0);
+        Creature outside = creatureAt(6, 0);
+        Creature farOutside = creatureAt(0, -10);
+
+        assertTrue(action.action(act, player, contract, action.getActionId(), 0));
+        assertTrue(assigned(centre));
+        assertTrue(assigned(corner));
+        assertTrue(assigned(edge));
+        assertFalse(assigned(outside));
+        assertFalse(assigned(farOutside));
+        assertThat(player, receivedMessageContaining("You add 3 animals to the contract."));
+    }
+
+    @Test
+    void testActionSavesOnce() {
+        for (int i = 0; i < 10; ++i) {
+            creatureAt(i % 3, i % 2);
+        }
+
+        assertTrue(action.action(act, player, contract, action.getActionId(), 0));
+        assertEquals(10, AnimalContract.getAnimalContract(contract).getCreatureCount());
+        assertEquals(1, saves);
+    }
+
+    @Test
+    void testActionOnDeedOnlyAssignsAnimalsOnSameDeed() {
+        Village deed = mock(Village.class);
+        Village otherDeed = mock(Village.class);
+        setVillage(0, 0, deed);
+        setVillage(1, 0, deed);
+        setVillage(2, 0, otherDeed);
+        Creature sameDeed = creatureAt(1, 0);
+        Creature onOtherDeed = creatureAt(2, 0);
+        Creature offDeed = creatureAt(3, 0);
+
+        assertTrue(action.action(act, player, contract, action.getActionId(), 0));
+        assertTrue(assigned(sameDeed));
+        assertFalse(assigned(onOtherDeed));
+        assertFalse(assigned(offDeed));
+        assertThat(player, receivedMessageContaining("You add 1 animal to the contract."));
+    }
+
+    @Test
+    void testActionOffDeedAssignsAnimalsOnAnyTile() {
+        Village deed = mock(Village.class);
+        setVillage(1, 0, deed);
+        Creature onDeed = creatureAt(1, 0);
+        Creature offDeed = creatureAt(2, 0);
+
+        assertTrue(action.action(act, player, contract, action.getActionId(), 0));
+        assertTrue(assigned(onDeed));
+        assertTrue(assigned(offDeed));
+    }
+
+    @Test
+    void testActionSkipsAnimalsOnAnotherContract() throws ContractFullException {
+        Creature free = creatureAt(1, 1);
+        Creature taken = creatureAt(-1, -1);
+        Item otherContract = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        AnimalContract.getAnimalContract(otherContract).addCreature(taken);
+
+        assertTrue(action.action(act, player, contract, action.getActionId(), 0));
+        assertTrue(assigned(free));
+        assertFalse(assigned(taken));
+        assertTrue(AnimalContract.getAnimalContract(otherContract).hasCreature(taken));
+        assertThat(player, receivedMessageContaining("You add 1 animal to the contract. 1 already on another contract."));
+    }
+
+    @Test
+    void testActionSkipsAnimalsAlreadyOnContract() throws ContractFullException {
+        Creature already = creatureAt(0, 1);
+        Creature added = creatureAt(1, 0);
+        AnimalContract.getAnimalContract(contract).addCreature(already);
+
+        assertTrue(action.action(act, player, contract, action.getActionId(), 0));
+        assertTrue(assigned(added));
+        assertThat(player, receivedMessageContaining("You add 1 animal to the contract."));
+        assertThat(player, didNotReceiveMessageContaining("another contract"));
+    }
+
+    @Test
+    void testActionTruncatesToCapacity() throws Exception {
+        ReflectionUtil.setPrivateField(null, AnimalContract.class.getDeclaredField("maxCreatures"), 2);
+        for (int i = 0; i < 3; ++i) {
+            creatureAt(i, 0);
+        }
+
+        assertTrue(action.action(act, player, contract, action.getActionId(), 0));
+        assertEquals(2, AnimalContract.getAnimalContract(contract).getCreatureCount());
+        assertEquals(1, saves);
+        assertThat(player, receivedMessageContaining("You add 2 animals to the contract. 1 would not fit on the contract."));
+    }
+
+    @Test
+    void testActionNoAnimalsNearby() {
+        tile(0, 0);
+        creatureAt(6, 6);
+
+        assertTrue(action.action(act, player, contract, action.getActionId(), 0));
+        assertEquals(0, AnimalContract.getAnimalContract(contract).getCreatureCount());
+        assertEquals(0, saves);
+        assertThat(player, receivedMessageContaining("There are no animals nearby to add to the contract."));
+    }
+}
@@ -11,6 +11,7 @@ import mod.wurmunlimited.contracts.animals.AnimalContract;
 import mod.wurmunlimited.contracts.animals.AnimalContractsMod;
 import mod.wurmunlimited.contracts.animals.AnimalContractsObjectsFactory;
 import mod.wurmunlimited.contracts.animals.ContractFullException;
+import mod.wurmunlimited.contracts.animals.ManagementBmlCache;
 import org.gotti.wurmunlimited.modloader.ReflectionUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -34,6 +35,8 @@ class AnimalContractManagementQuestionTests {
     void setUp() throws Exception {
         factory = new AnimalContractsObjectsFactory();
         ReflectionUtil.setPrivateField(null, AnimalContractsMod.class.getDeclaredField("useAnimalHusbandryForTraits"), false);
+        // Name and trait changes only reach the cache through bytecode hooks, which are not applied in tests.
+        ReflectionUtil.setPrivateField(null, ManagementBmlCache.class.getDeclaredField("maxSize"), 0);
         player = factory.createNewPlayer();
         comm = factory.getCommunicator(player);
         contract = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
@@ -258,4 +261,200 @@ class AnimalContractManagementQuestionTests {
         for (Creature creature : toKeep)
             assertTrue(animalContract.hasCreature(creature));
     }
+
+    @Test
+    void testSinglePageHasNoPageButtons() throws ContractFullException {
+        AnimalContract.getAnimalContract(contract).addCreature(factory.createNewCreature(CreatureTemplateIds.HORSE_CID));
+        new AnimalContractManagementQuestion(player, contract).sendQuestion();
+
+        assertFalse(comm.lastBmlContent.contains("Page 1"));
+        assertFalse(comm.lastBmlContent.contains("Next"));
+        assertFalse(comm.lastBmlContent.contains("Previous"));
+    }
+
+    @Test
+    void testLargeContractPaged() throws ContractFullException {
+        AnimalContract animalContract = AnimalContract.getAnimalContract(contract);
+        for (int i = 0; i < AnimalContractsMod.getManagementPageSize() + 1; i++) {
+            animalContract.addCreature(factory.createNewCreature(CreatureTemplateIds.HORSE_CID));
+        }
+
+        new AnimalContractManagementQuestion(player, contract).sendQuestion();
+        assertTrue(comm.lastBmlContent.contains("Page 1 of 2"), comm.lastBmlContent);
+        assertTrue(comm.lastBmlContent.contains("Next"));
+        assertFalse(comm.lastBmlContent.contains("Previous"));
+
+        Properties properties = new Properties();
+        properties.setProperty("next", "true");
+        new AnimalContractManagementQuestion(player, contract).answer(properties);
+        assertTrue(comm.lastBmlContent.contains("Page 2 of 2"), comm.lastBmlContent);
+        assertTrue(comm.lastBmlContent.contains("Previous"));
+        assertFalse(comm.lastBmlContent.contains("Next"));
+    }
+
+    @Test
+    void testRemoveCreatureOnLaterPage() throws ContractFullException {
+        AnimalContract animalContract = AnimalContract.getAnimalContract(contract);
+        List<Creature> creatures = new ArrayList<>();
+        for (int i = 0; i < AnimalContractsMod.getManagementPageSize() + 1; i++) {
+            Creature creature = factory.createNewCreature(CreatureTemplateIds.HORSE_CID);
+            animalContract.addCreature(creature);
+            creatures.add(creature);
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty("update", "true");
+        properties.setProperty(Integer.toString(AnimalContractsMod.getManagementPageSize()), "true");
+        new AnimalContractManagementQuestion(player, contract, 1).answer(properties);
+
+        animalContract = AnimalContract.getAnimalContract(contract);
+        assertFalse(animalContract.hasCreature(creatures.get(AnimalContractsMod.getManagementPageSize())));
+        assertEquals(AnimalContractsMod.getManagementPageSize(), animalContract.getCreatureCount());
+    }
+
+    @Test
+    void testFilterByName() throws ContractFullException {
+        AnimalContract animalContract = AnimalContract.getAnimalContract(contract);
+        Creature bessie = factory.createNewCreature(CreatureTemplateIds.HORSE_CID);
+        bessie.setName("Bessie");
+        Creature daisy = factory.createNewCreature(CreatureTemplateIds.HORSE_CID);
+        daisy.setName("Daisy");
+        animalContract.addCreature(bessie);
+        animalContract.addCreature(daisy);
+
+        new AnimalContractManagementQuestion(player, contract, 0, AnimalContractManagementQuestion.SORT_DEFAULT, "bess").sendQuestion();
+        assertTrue(comm.lastBmlContent.contains("Bessie"));
+        assertFalse(comm.lastBmlContent.contains("Daisy"));
+
+        new AnimalContractManagementQuestion(player, contract, 0, AnimalContractManagementQuestion.SORT_DEFAULT, "nobody").sendQuestion();
+        assertTrue(comm.lastBmlContent.contains("No creatures match the filter."));
+    }
+
+    @Test
+    void testFilterByType() throws ContractFullException {
+        AnimalContract animalContract = AnimalContract.getAnimalContract(contract);
+        Creature horse = factory.createNewCreature(CreatureTemplateIds.HORSE_CID);
+        Creature spider = factory.createNewCreature(CreatureTemplateIds.SPIDER_CID);
+        animalContract.addCreature(horse);
+        animalContract.addCreature(spider);
+
+        new AnimalContractManagementQuestion(player, contract, 0, AnimalContractManagementQuestion.SORT_DEFAULT, spider.getTemplate().getName()).sendQuestion();
+        assertTrue(comm.lastBmlContent.contains(spider.getTemplate().getName()));
+        assertFalse(comm.lastBmlContent.contains(horse.getTemplate().getName()));
+    }
+
+    @Test
+    void testSortByName() throws ContractFullException {
+        AnimalContract animalContract = AnimalContract.getAnimalContract(contract);
+        Creature zed = factory.createNewCreature(CreatureTemplateIds.HORSE_CID);
+        zed.setName("Zed");
+        Creature abe = factory.createNewCreature(CreatureTemplateIds.HORSE_CID);
+        abe.setName("Abe");
+        animalContract.addCreature(zed);
+        animalContract.addCreature(abe);
+
+        new AnimalContractManagementQuestion(player, contract, 0, AnimalContractManagementQuestion.SORT_DEFAULT, "").sendQuestion();
+        assertTrue(comm.lastBmlContent.indexOf("Zed") < comm.lastBmlContent.indexOf("Abe"));
+        new AnimalContractManagementQuestion(player, contract, 0, AnimalContractManagementQuestion.SORT_NAME, "").sendQuestion();
+        assertTrue(comm.lastBmlContent.indexOf("Abe") < comm.lastBmlContent.indexOf("Zed"));
+    }
+
+    @Test
+    void testSortByTraitCount() throws ContractFullException {
+        AnimalContract animalContract = AnimalContract.getAnimalContract(contract);
+        Creature plain = factory.createNewCreature(CreatureTemplateIds.HORSE_CID);
+        plain.setName("Plain");
+        Creature fancy = factory.createNewCreature(CreatureTemplateIds.HORSE_CID);
+        fancy.setName("Fancy");
+        fancy.getStatus().setTraitBit(1, true);
+        fancy.getStatus().setTraitBit(2, true);
+        animalContract.addCreature(plain);
+        animalContract.addCreature(fancy);
+
+        new AnimalContractManagementQuestion(player, contract, 0, AnimalContractManagementQuestion.SORT_TRAITS, "").sendQuestion();
+        assertTrue(comm.lastBmlContent.indexOf("Fancy") < comm.lastBmlContent.indexOf("Plain"));
+    }
+
+    @Test
+    void testRemoveCreatureWithSortAndFilter() throws ContractFullException {
+        AnimalContract animalContract = AnimalContract.getAnimalContract(contract);
+        Creature zed = factory.createNewCreature(CreatureTemplateIds.HORSE_CID);
+        zed.setName("Zed");
+        Creature abe = factory.createNewCreature(CreatureTemplateIds.HORSE_CID);
+        abe.setName("Abe");
+        animalContract.addCreature(zed);
+        animalContract.addCreature(abe);
+
+        Properties properties = new Properties();
+        properties.setProperty("update", "true");
+        properties.setProperty("0", "true");
+        new AnimalContractManagementQuestion(player, contract, 0, AnimalContractManagementQuestion.SORT_NAME, "").answer(properties);
+
+        animalContract = AnimalContract.getAnimalContract(contract);
+        assertFalse(animalContract.hasCreature(abe));
+        assertTrue(animalContract.hasCreature(zed));
+    }
+
+    @Test
+    void testApplyChangesSortAndResetsPage() throws ContractFullException {
+        AnimalContract animalContract = AnimalContract.getAnimalContract(contract);
+        for (int i = 0; i < AnimalContractsMod.getManagementPageSize() + 1; i++) {
+            animalContract.addCreature(factory.createNewCreature(CreatureTemplateIds.HORSE_CID));
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty("next", "true");
+        properties.setProperty("sort", Integer.toString(AnimalContractManagementQuestion.SORT_NAME));
+        properties.setProperty("filter", "");
+        new AnimalContractManagementQuestion(player, contract, 0).answer(properties);
+        assertTrue(comm.lastBmlContent.contains("Page 1 of 2"), comm.lastBmlContent);
+    }
+
+    @Test
+    void testReopeningUsesCachedBml() throws Exception {
+        ReflectionUtil.setPrivateField(null, ManagementBmlCache.class.getDeclaredField("maxSize"), 128);
+        AnimalContract animalContract = AnimalContract.getAnimalContract(contract);
+        Creature creature = factory.createNewCreature(CreatureTemplateIds.HORSE_CID);
+        animalContract.addCreature(creature);
+
+        long hits = ManagementBmlCache.getHits();
+        new AnimalContractManagementQuestion(player, contract).sendQuestion();
+        new AnimalContractManagementQuestion(player, contract).sendQuestion();
+        assertEquals(hits + 1, ManagementBmlCache.getHits());
+        assertTrue(comm.lastBmlContent.contains(creature.getTemplate().getName()));
+
+        Creature other = factory.createNewCreature(CreatureTemplateIds.SPIDER_CID);
+        animalContract.addCreature(other);
+        new AnimalContractManagementQuestion(player, contract).sendQuestion();
+        assertEquals(hits + 1, ManagementBmlCache.getHits());
+        assertTrue(comm.lastBmlContent.contains(other.getTemplate().getName()));
+    }
+
+    @Test
+    void testAnswerUsesOrderOfCachedPage() throws Exception {
+        ReflectionUtil.setPrivateField(null, ManagementBmlCache.class.getDeclaredField("maxSize"), 128);
+        AnimalContract animalContract = AnimalContract.getAnimalContract(contract);
+        Creature zed = factory.createNewCreature(CreatureTemplateIds.HORSE_CID);
+        zed.setName("Zed");
+        Creature abe = factory.createNewCreature(CreatureTemplateIds.HORSE_CID);
+        abe.setName("Abe");
+        animalContract.addCreature(zed);
+        animalContract.addCreature(abe);
+        new AnimalContractManagementQuestion(player, contract, 0, AnimalContractManagementQuestion.SORT_NAME, "").sendQuestion();
+
+        // Without the rename hook the cached page still lists Abe first, even though sorting again would not.
+        abe.setName("Zz");
+        AnimalContractManagementQuestion question = new AnimalContractManagementQuestion(player, contract, 0, AnimalContractManagementQuestion.SORT_NAME, "");
+        question.sendQuestion();
+        assertTrue(comm.lastBmlContent.indexOf("Abe") < comm.lastBmlContent.indexOf("Zed"));
+
+        Properties properties = new Properties();
+        properties.setProperty("update", "true");
+        properties.setProperty("0", "true");
+        question.answer(properties);
+
+        animalContract = AnimalContract.getAnimalContract(contract);
+        assertFalse(animalContract.hasCreature(abe));
+        assertTrue(animalContract.hasCreature(zed));
+    }
 }
@@ -0,0 +1,93 @@
+package mod.wurmunlimited.contracts.animals;
+
+import com.wurmonline.server.creatures.Creature;
+import com.wurmonline.server.creatures.CreatureStatus;
+import org.gotti.wurmunlimited.modloader.ReflectionUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AgeFreezeTests {
+    private AnimalContractsObjectsFactory factory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        factory = new AnimalContractsObjectsFactory();
+        ProtectedRegistry.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        AgeFreeze.setEnabled(false);
+        ProtectedRegistry.clear();
+    }
+
+    @Test
+    void testDisabledByDefault() {
+        assertFalse(AgeFreeze.isEnabled());
+        Creature creature = factory.createNewCreature();
+        assertDoesNotThrow(() -> ProtectedRegistry.add(creature.getWurmId()));
+        assertDoesNotThrow(() -> ProtectedRegistry.remove(creature.getWurmId()));
+    }
+
+    @Test
+    void testMissingCreatureIgnored() {
+        AgeFreeze.setEnabled(true);
+        assertDoesNotThrow(() -> AgeFreeze.setFrozen(123456789L, true));
+        assertDoesNotThrow(() -> AgeFreeze.setFrozen(new long[] { 123456789L, 987654321L }, false));
+    }
+
+    @Test
+    void testEnabledWithoutWovenFieldFails() {
+        // CreatureStatus only has the field once init has woven it.
+        AgeFreeze.setEnabled(true);
+        Creature creature = factory.createNewCreature();
+        assertThrows(RuntimeException.class, () -> AgeFreeze.setFrozen(creature.getWurmId(), true));
+    }
+
+    private static AgeFreeze.Freezable wovenStatus(Creature creature) throws Exception {
+        CreatureStatus status = mock(CreatureStatus.class, withSettings().extraInterfaces(AgeFreeze.Freezable.class));
+        ReflectionUtil.setPrivateField(creature, Creature.class.getDeclaredField("status"), status);
+        return (AgeFreeze.Freezable)status;
+    }
+
+    @Test
+    void testFlagFollowsAddAndRemove() throws Exception {
+        AgeFreeze.setEnabled(true);
+        Creature creature = factory.createNewCreature();
+        Creature other = factory.createNewCreature();
+        AgeFreeze.Freezable status = wovenStatus(creature);
+        AgeFreeze.Freezable otherStatus = wovenStatus(other);
+
+        ProtectedRegistry.add(creature.getWurmId());
+        verify(status).setAgeFrozen(true);
+        ProtectedRegistry.remove(creature.getWurmId());
+        verify(status).setAgeFrozen(false);
+
+        ProtectedRegistry.addAll(new long[] { creature.getWurmId(), other.getWurmId() });
+        verify(status, times(2)).setAgeFrozen(true);
+        verify(otherStatus).setAgeFrozen(true);
+        ProtectedRegistry.removeAll(new long[] { other.getWurmId() });
+        verify(otherStatus).setAgeFrozen(false);
+        verify(status, times(1)).setAgeFrozen(false);
+    }
+
+    @Test
+    void testSyncReadsRegistry() throws Exception {
+        Creature creature = factory.createNewCreature();
+        Creature other = factory.createNewCreature();
+        // Protected while the flags were not being kept, as for a creature that was not loaded at the time.
+        ProtectedRegistry.add(creature.getWurmId());
+        AgeFreeze.setEnabled(true);
+        AgeFreeze.Freezable status = wovenStatus(creature);
+        AgeFreeze.Freezable otherStatus = wovenStatus(other);
+
+        AgeFreeze.sync(creature.getStatus(), creature.getWurmId());
+        AgeFreeze.sync(other.getStatus(), other.getWurmId());
+        verify(status).setAgeFrozen(true);
+        verify(otherStatus).setAgeFrozen(false);
+    }
+}
@@ -1,16 +1,12 @@
 package mod.wurmunlimited.contracts.animals;
 
 import com.wurmonline.server.creatures.Creature;
-import org.gotti.wurmunlimited.modloader.ReflectionUtil;
 import org.gotti.wurmunlimited.modsupport.actions.ActionEntryBuilder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import java.lang.reflect.Field;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.util.HashSet;
-import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -22,14 +18,14 @@ class AnimalContractModTests {
     void setUp() throws Exception {
         factory = new AnimalContractsObjectsFactory();
         ActionEntryBuilder.init();
-        ReflectionUtil.setPrivateField(null, AnimalContractsMod.class.getDeclaredField("protectedCreatures"), new HashSet<>());
+        ProtectedRegistry.clear();
     }
 
     @Test
     void testPollAgeAssignedAnimal() throws Throwable {
         AnimalContractsMod mod = new AnimalContractsMod();
         Creature creature = factory.createNewCreature();
-        AnimalContractsMod.addProtectedCreature(creature);
+        ProtectedRegistry.add(creature.getWurmId());
 
         InvocationHandler handler = mod::pollAge;
         Method method = mock(Method.class);
@@ -52,21 +48,43 @@ class AnimalContractModTests {
         verify(method, times(1)).invoke(creature.getStatus(), args);
     }
 
-    @SuppressWarnings("unchecked")
     @Test
-    void testProtectedCreaturesAddedOnServerLoad() throws ContractFullException, NoSuchFieldException, IllegalAccessException {
+    void testProtectedCreaturesAddedOnServerLoad() throws ContractFullException {
         AnimalContract contract = AnimalContract.getAnimalContract(factory.createNewItem(AnimalContractsMod.getContractTemplateId()));
         Creature creature = factory.createNewCreature();
         contract.addCreature(creature);
-        ReflectionUtil.setPrivateField(null, AnimalContractsMod.class.getDeclaredField("protectedCreatures"), new HashSet<>());
+        ProtectedRegistry.clear();
 
-        Field protectedCreatures = AnimalContractsMod.class.getDeclaredField("protectedCreatures");
-        protectedCreatures.setAccessible(true);
+        assertFalse(ProtectedRegistry.isProtected(creature.getWurmId()));
 
-        assertFalse(((Set<Creature>)protectedCreatures.get(null)).contains(creature));
+        new AnimalContractsMod().onServerStarted();
+
+        assertTrue(ProtectedRegistry.isProtected(creature.getWurmId()));
+    }
+
+    @Test
+    void testServerLoadDoesNotBuildContracts() throws ContractFullException {
+        AnimalContract contract = AnimalContract.getAnimalContract(factory.createNewItem(AnimalContractsMod.getContractTemplateId()));
+        Creature creature = factory.createNewCreature();
+        contract.addCreature(creature);
+        ProtectedRegistry.clear();
+        AnimalContract.cache.clear();
 
         new AnimalContractsMod().onServerStarted();
 
-        assertTrue(((Set<Creature>)protectedCreatures.get(null)).contains(creature));
+        assertTrue(ProtectedRegistry.isProtected(creature.getWurmId()));
+        assertEquals(0, AnimalContract.cache.size());
+    }
+
+    @Test
+    void testProtectedRegistryAddAndRemove() throws ContractFullException {
+        AnimalContract contract = AnimalContract.getAnimalContract(factory.createNewItem(AnimalContractsMod.getContractTemplateId()));
+        Creature creature = factory.createNewCreature();
+
+        contract.addCreature(creature);
+        assertTrue(ProtectedRegistry.isProtected(creature.getWurmId()));
+
+        contract.removeCreature(creature);
+        assertFalse(ProtectedRegistry.isProtected(creature.getWurmId()));
     }
 }
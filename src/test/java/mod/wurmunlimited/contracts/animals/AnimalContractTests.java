@@ -1,17 +1,21 @@
 package mod.wurmunlimited.contracts.animals;
 
-import com.google.common.base.Joiner;
 import com.wurmonline.server.creatures.Creature;
 import com.wurmonline.server.creatures.CreatureTemplateIds;
 import com.wurmonline.server.items.Item;
 import com.wurmonline.server.items.ItemList;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -21,6 +25,17 @@ class AnimalContractTests {
     @BeforeEach
     void setUp() throws Exception {
         factory = new AnimalContractsObjectsFactory();
+        AnimalContract.setStore(new InscriptionContractStore());
+        AnimalContract.setDelaySaves(false);
+        AnimalContract.setMaxCreatures(1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Writes out and empties the dirty map before the store is replaced.
+        AnimalContract.setDelaySaves(false);
+        AnimalContract.setStore(new InscriptionContractStore());
+        AnimalContract.setMaxCreatures(1000);
     }
 
     @Test
@@ -70,6 +85,34 @@ class AnimalContractTests {
         assertEquals(0, contract.getAllCreatures().size());
     }
 
+    @Test
+    void testMissingCreatureKeptOnSave() throws ContractFullException {
+        Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        Creature creature = factory.createNewCreature();
+        Creature creature2 = factory.createNewCreature();
+        contractItem.setInscription(Long.toString(creature.getWurmId()), "");
+        creature.destroy();
+
+        AnimalContract contract = AnimalContract.getAnimalContract(contractItem);
+        contract.addCreature(creature2);
+
+        assertTrue(contract.hasCreature(creature.getWurmId()));
+        assertEquals(2, contract.getCreatureCount());
+        assertEquals(1, contract.getAllCreatures().size());
+        assertArrayEquals(new long[] { creature.getWurmId(), creature2.getWurmId() }, ContractCodec.decode(Objects.requireNonNull(contractItem.getInscription()).getInscription()));
+    }
+
+    @Test
+    void testAddSameCreatureTwice() throws ContractFullException {
+        Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        Creature creature = factory.createNewCreature();
+
+        AnimalContract contract = AnimalContract.getAnimalContract(contractItem);
+        contract.addCreature(creature);
+        contract.addCreature(creature);
+        assertEquals(1, contract.getCreatureCount());
+    }
+
     @Test
     void testAddCreature() {
         Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
@@ -154,14 +197,39 @@ class AnimalContractTests {
         assertEquals("", Objects.requireNonNull(contractItem.getInscription()).getInscription());
 
         contract.addCreature(creature);
-        assertEquals(Long.toString(creature.getWurmId()), Objects.requireNonNull(contractItem.getInscription()).getInscription());
+        assertEquals(ContractCodec.encode(new long[] { creature.getWurmId() }), Objects.requireNonNull(contractItem.getInscription()).getInscription());
 
         contract.addCreature(creature2);
-        assertEquals(String.format("%s\n%s", creature.getWurmId(), creature2.getWurmId()),
+        assertEquals(ContractCodec.encode(new long[] { creature.getWurmId(), creature2.getWurmId() }),
                 Objects.requireNonNull(contractItem.getInscription()).getInscription());
 
         contract.removeCreature(creature);
-        assertEquals(Long.toString(creature2.getWurmId()), Objects.requireNonNull(contractItem.getInscription()).getInscription());
+        assertEquals(ContractCodec.encode(new long[] { creature2.getWurmId() }), Objects.requireNonNull(contractItem.getInscription()).getInscription());
+    }
+
+    @Test
+    void testLegacyContractMigratedOnLoad() {
+        Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        Creature creature = factory.createNewCreature();
+        Creature creature2 = factory.createNewCreature();
+        contractItem.setInscription(creature.getWurmId() + "\n" + creature2.getWurmId(), "");
+
+        AnimalContract contract = AnimalContract.getAnimalContract(contractItem);
+        assertTrue(contract.hasCreature(creature));
+        assertTrue(contract.hasCreature(creature2));
+        assertEquals(ContractCodec.encode(new long[] { creature.getWurmId(), creature2.getWurmId() }),
+                Objects.requireNonNull(contractItem.getInscription()).getInscription());
+    }
+
+    @Test
+    void testContractHoldsMoreThanLegacyFormat() throws ContractFullException {
+        Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        AnimalContract contract = AnimalContract.getAnimalContract(contractItem);
+
+        for (int i = 0; i < 50; i++) {
+            contract.addCreature(factory.createNewCreature());
+        }
+        assertEquals(50, contract.getAllCreatures().size());
     }
 
     @Test
@@ -177,7 +245,7 @@ class AnimalContractTests {
                 creatures.add(creature);
             } catch (ContractFullException e) {
                 assertEquals(creatures, AnimalContract.getAnimalContract(contractItem).getAllCreatures());
-                assertEquals(Joiner.on("\n").join(creatures.stream().map(Creature::getWurmId).collect(Collectors.toList())),
+                assertEquals(ContractCodec.encode(creatures.stream().mapToLong(Creature::getWurmId).toArray()),
                         Objects.requireNonNull(contractItem.getInscription()).getInscription());
                 break;
             }
@@ -204,4 +272,248 @@ class AnimalContractTests {
             }
         }
     }
+
+    @Test
+    void testAlternativeStoreUsed() throws ContractFullException {
+        Map<Long, long[]> stored = new HashMap<>();
+        AnimalContract.setStore(new ContractStore() {
+            @Override
+            public long[] load(Item contract) {
+                return stored.getOrDefault(contract.getWurmId(), new long[0]);
+            }
+
+            @Override
+            public void save(Item contract, long[] creatureIds) {
+                stored.put(contract.getWurmId(), creatureIds);
+            }
+        });
+        Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        Creature creature = factory.createNewCreature();
+
+        AnimalContract.getAnimalContract(contractItem).addCreature(creature);
+        assertArrayEquals(new long[] { creature.getWurmId() }, stored.get(contractItem.getWurmId()));
+
+        AnimalContract.invalidate(contractItem.getWurmId());
+        assertTrue(AnimalContract.getAnimalContract(contractItem).hasCreature(creature));
+    }
+
+    @Test
+    void testRemoveCreatures() throws ContractFullException {
+        Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        AnimalContract contract = AnimalContract.getAnimalContract(contractItem);
+        List<Creature> creatures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Creature creature = factory.createNewCreature();
+            contract.addCreature(creature);
+            creatures.add(creature);
+        }
+
+        contract.removeCreatures(creatures.subList(0, 3));
+        assertEquals(2, contract.getCreatureCount());
+        assertFalse(contract.hasCreature(creatures.get(0)));
+        assertTrue(contract.hasCreature(creatures.get(4)));
+        assertFalse(ProtectedRegistry.isProtected(creatures.get(1).getWurmId()));
+        assertArrayEquals(new long[] { creatures.get(3).getWurmId(), creatures.get(4).getWurmId() },
+                ContractCodec.decode(Objects.requireNonNull(contractItem.getInscription()).getInscription()));
+    }
+
+    @Test
+    void testDelayedSavesWrittenOnFlush() throws ContractFullException {
+        AnimalContract.setDelaySaves(true);
+        Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        Creature creature = factory.createNewCreature();
+        Creature creature2 = factory.createNewCreature();
+
+        AnimalContract contract = AnimalContract.getAnimalContract(contractItem);
+        contract.addCreature(creature);
+        contract.addCreature(creature2);
+        contract.removeCreature(creature);
+
+        assertEquals("", Objects.requireNonNull(contractItem.getInscription()).getInscription());
+        assertEquals(1, AnimalContract.getDirtyCount());
+        assertSame(contract, AnimalContract.getAnimalContract(contractItem));
+        assertTrue(ProtectedRegistry.isProtected(creature2.getWurmId()));
+
+        AnimalContract.flush();
+
+        assertEquals(0, AnimalContract.getDirtyCount());
+        assertEquals(ContractCodec.encode(new long[] { creature2.getWurmId() }), Objects.requireNonNull(contractItem.getInscription()).getInscription());
+        assertSame(contract, AnimalContract.getAnimalContract(contractItem));
+    }
+
+    @Test
+    void testDelayedSavesStillCheckCapacity() {
+        AnimalContract.setDelaySaves(true);
+        Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        AnimalContract contract = AnimalContract.getAnimalContract(contractItem);
+
+        assertThrows(ContractFullException.class, () -> {
+            while (true) {
+                contract.addCreature(factory.createNewCreature());
+            }
+        });
+    }
+
+    @Test
+    void testAddCreatures() throws ContractFullException {
+        Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        AnimalContract contract = AnimalContract.getAnimalContract(contractItem);
+        Creature existing = factory.createNewCreature();
+        contract.addCreature(existing);
+
+        List<Creature> creatures = new ArrayList<>();
+        creatures.add(existing);
+        creatures.add(factory.createNewPlayer());
+        for (int i = 0; i < 10; i++) {
+            creatures.add(factory.createNewCreature());
+        }
+
+        assertEquals(10, contract.addCreatures(creatures).length);
+        assertEquals(11, contract.getCreatureCount());
+        for (Creature creature : creatures.subList(2, creatures.size())) {
+            assertTrue(contract.hasCreature(creature));
+            assertTrue(ProtectedRegistry.isProtected(creature.getWurmId()));
+            assertEquals(contractItem.getWurmId(), CreatureContracts.getContractFor(creature.getWurmId()));
+        }
+        assertEquals(11, ContractCodec.decode(Objects.requireNonNull(contractItem.getInscription()).getInscription()).length);
+    }
+
+    @Test
+    void testAddCreaturesStopsWhenFull() {
+        Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        AnimalContract contract = AnimalContract.getAnimalContract(contractItem);
+        List<Creature> creatures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            creatures.add(factory.createNewCreature());
+        }
+
+        long[] added = contract.addCreatures(creatures);
+        assertTrue(added.length > 0);
+        assertTrue(added.length < creatures.size());
+        assertEquals(added.length, contract.getCreatureCount());
+        assertEquals(added.length, ContractCodec.decode(Objects.requireNonNull(contractItem.getInscription()).getInscription()).length);
+    }
+
+    @Test
+    void testMaxCreaturesPerContract() throws ContractFullException {
+        AnimalContract.setMaxCreatures(3);
+        Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        AnimalContract contract = AnimalContract.getAnimalContract(contractItem);
+        for (int i = 0; i < 3; i++) {
+            contract.addCreature(factory.createNewCreature());
+        }
+
+        Creature creature = factory.createNewCreature();
+        assertThrows(ContractFullException.class, () -> contract.addCreature(creature));
+        assertFalse(contract.hasCreature(creature));
+        assertEquals(0, contract.addCreatures(Collections.singletonList(factory.createNewCreature())).length);
+        assertEquals(3, contract.getCreatureCount());
+    }
+
+    @Test
+    void testDestroyingOtherItemsSkipsContractCleanup() throws ContractFullException {
+        List<Long> deleted = new ArrayList<>();
+        AnimalContract.setStore(new InscriptionContractStore() {
+            @Override
+            public void delete(long contractId) {
+                deleted.add(contractId);
+            }
+        });
+        Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        AnimalContract.getAnimalContract(contractItem).addCreature(factory.createNewCreature());
+        Item other = factory.createNewItem(ItemList.papyrusSheet);
+
+        AnimalContract.contractDestroyed(other.getWurmId());
+        assertTrue(deleted.isEmpty());
+
+        AnimalContract.contractDestroyed(contractItem.getWurmId());
+        assertEquals(Collections.singletonList(contractItem.getWurmId()), deleted);
+    }
+
+    @Test
+    void testDestroyingContractReleasesCreatures() throws ContractFullException {
+        ProtectedRegistry.clear();
+        CreatureContracts.clear();
+        Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        Creature creature1 = factory.createNewCreature();
+        Creature creature2 = factory.createNewCreature();
+        AnimalContract.getAnimalContract(contractItem).addCreature(creature1);
+        AnimalContract.getAnimalContract(contractItem).addCreature(creature2);
+        assertTrue(ProtectedRegistry.isProtected(creature1.getWurmId()));
+
+        AnimalContract.contractDestroyed(contractItem.getWurmId());
+        for (Creature creature : new Creature[] { creature1, creature2 }) {
+            assertFalse(ProtectedRegistry.isProtected(creature.getWurmId()));
+            assertEquals(CreatureContracts.NONE, CreatureContracts.getContractFor(creature.getWurmId()));
+        }
+        assertEquals(0, CreatureContracts.getCreatureCount(contractItem.getWurmId()));
+    }
+
+    @Test
+    void testDestroyingUncachedContractReleasesCreatures() throws ContractFullException {
+        ProtectedRegistry.clear();
+        CreatureContracts.clear();
+        Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        Creature creature = factory.createNewCreature();
+        AnimalContract.getAnimalContract(contractItem).addCreature(creature);
+        AnimalContract.cache.clear();
+
+        AnimalContract.contractDestroyed(contractItem.getWurmId());
+        assertFalse(ProtectedRegistry.isProtected(creature.getWurmId()));
+        assertEquals(CreatureContracts.NONE, CreatureContracts.getContractFor(creature.getWurmId()));
+    }
+
+    /**
+     * Keeps ids outside of the contract item, like DatabaseContractStore.  Loads on the prewarm thread wait for
+     * written, so a write can be made while they are in progress.
+     */
+    private static class RowStore implements ContractStore {
+        private final Map<Long, long[]> rows = Collections.synchronizedMap(new HashMap<>());
+        private final ContractRevisions revisions = new ContractRevisions();
+        private final CountDownLatch loading = new CountDownLatch(1);
+        private final CountDownLatch written = new CountDownLatch(1);
+
+        @Override
+        public long[] load(Item contract) {
+            long[] ids = rows.getOrDefault(contract.getWurmId(), new long[0]);
+            if (Thread.currentThread().getName().equals("prewarm")) {
+                loading.countDown();
+                try {
+                    written.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return ids;
+        }
+
+        @Override
+        public void save(Item contract, long[] creatureIds) {
+            rows.put(contract.getWurmId(), creatureIds.clone());
+            revisions.changed(contract.getWurmId());
+        }
+
+        @Override
+        public String revision(Item contract) {
+            return revisions.get(contract.getWurmId());
+        }
+    }
+
+    @Test
+    void testPrewarmRacingWriteIsNotUsed() throws Exception {
+        RowStore rowStore = new RowStore();
+        AnimalContract.setStore(rowStore);
+        Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        Creature creature = factory.createNewCreature();
+
+        Thread prewarm = new Thread(() -> AnimalContract.getAnimalContract(contractItem), "prewarm");
+        prewarm.start();
+        assertTrue(rowStore.loading.await(10, TimeUnit.SECONDS));
+        AnimalContract.getAnimalContract(contractItem).addCreature(creature);
+        rowStore.written.countDown();
+        prewarm.join();
+
+        // The prewarm thread cached what it loaded before the write, which must not be mistaken for current.
+        assertTrue(AnimalContract.getAnimalContract(contractItem).hasCreature(creature));
+    }
 }
@@ -0,0 +1,86 @@
+package mod.wurmunlimited.contracts.animals;
+
+import com.wurmonline.server.creatures.Creature;
+import com.wurmonline.server.items.Item;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContractCacheTests {
+    private AnimalContractsObjectsFactory factory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        factory = new AnimalContractsObjectsFactory();
+        AnimalContract.setStore(new InscriptionContractStore());
+        AnimalContract.cache.setMaxSize(256);
+    }
+
+    @Test
+    void testSameInstanceReturned() {
+        Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        long hits = AnimalContract.cache.getHits();
+
+        AnimalContract contract = AnimalContract.getAnimalContract(contractItem);
+        assertSame(contract, AnimalContract.getAnimalContract(contractItem));
+        assertEquals(hits + 1, AnimalContract.cache.getHits());
+    }
+
+    @Test
+    void testSavedContractStaysCached() throws ContractFullException {
+        Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        Creature creature = factory.createNewCreature();
+
+        AnimalContract contract = AnimalContract.getAnimalContract(contractItem);
+        contract.addCreature(creature);
+
+        AnimalContract cached = AnimalContract.getAnimalContract(contractItem);
+        assertSame(contract, cached);
+        assertTrue(cached.hasCreature(creature));
+    }
+
+    @Test
+    void testExternalInscriptionChangeInvalidates() {
+        Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        Creature creature = factory.createNewCreature();
+
+        AnimalContract contract = AnimalContract.getAnimalContract(contractItem);
+        assertFalse(contract.hasCreature(creature));
+        long misses = AnimalContract.cache.getMisses();
+
+        contractItem.setInscription(Long.toString(creature.getWurmId()), "");
+        AnimalContract reloaded = AnimalContract.getAnimalContract(contractItem);
+
+        assertNotSame(contract, reloaded);
+        assertTrue(reloaded.hasCreature(creature));
+        assertEquals(misses + 1, AnimalContract.cache.getMisses());
+    }
+
+    @Test
+    void testInvalidate() {
+        Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+
+        AnimalContract contract = AnimalContract.getAnimalContract(contractItem);
+        AnimalContract.invalidate(contractItem.getWurmId());
+
+        assertNotSame(contract, AnimalContract.getAnimalContract(contractItem));
+    }
+
+    @Test
+    void testLeastRecentlyUsedEvicted() {
+        AnimalContract.cache.setMaxSize(2);
+        Item first = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        Item second = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        Item third = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+
+        AnimalContract firstContract = AnimalContract.getAnimalContract(first);
+        AnimalContract secondContract = AnimalContract.getAnimalContract(second);
+        assertSame(firstContract, AnimalContract.getAnimalContract(first));
+        AnimalContract.getAnimalContract(third);
+
+        assertEquals(2, AnimalContract.cache.size());
+        assertSame(firstContract, AnimalContract.getAnimalContract(first));
+        assertNotSame(secondContract, AnimalContract.getAnimalContract(second));
+    }
+}
@@ -0,0 +1,106 @@
+package mod.wurmunlimited.contracts.animals;
+
+import com.wurmonline.server.creatures.Creature;
+import com.wurmonline.server.items.Item;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContractCleanupTests {
+    private AnimalContractsObjectsFactory factory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        factory = new AnimalContractsObjectsFactory();
+        AnimalContract.setStore(new InscriptionContractStore());
+        ProtectedRegistry.clear();
+        CreatureContracts.clear();
+        ContractCleanup.process();
+    }
+
+    @Test
+    void testUnprotectedCreatureIgnored() {
+        Creature creature = factory.createNewCreature();
+        ContractCleanup.creatureDestroyed(creature.getWurmId());
+        assertEquals(0, ContractCleanup.pendingCount());
+    }
+
+    @Test
+    void testDestroyedCreatureRemovedInBatch() throws ContractFullException {
+        Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        AnimalContract contract = AnimalContract.getAnimalContract(contractItem);
+        Creature dead1 = factory.createNewCreature();
+        Creature dead2 = factory.createNewCreature();
+        Creature alive = factory.createNewCreature();
+        contract.addCreature(dead1);
+        contract.addCreature(dead2);
+        contract.addCreature(alive);
+        assertEquals(contractItem.getWurmId(), CreatureContracts.getContractFor(dead1.getWurmId()));
+
+        ContractCleanup.creatureDestroyed(dead1.getWurmId());
+        ContractCleanup.creatureDestroyed(dead2.getWurmId());
+        assertEquals(2, ContractCleanup.pendingCount());
+        assertTrue(ProtectedRegistry.isProtected(dead1.getWurmId()));
+
+        ContractCleanup.process();
+
+        assertEquals(0, ContractCleanup.pendingCount());
+        assertFalse(ProtectedRegistry.isProtected(dead1.getWurmId()));
+        assertFalse(ProtectedRegistry.isProtected(dead2.getWurmId()));
+        assertTrue(ProtectedRegistry.isProtected(alive.getWurmId()));
+        assertEquals(CreatureContracts.NONE, CreatureContracts.getContractFor(dead1.getWurmId()));
+
+        contract = AnimalContract.getAnimalContract(contractItem);
+        assertFalse(contract.hasCreature(dead1));
+        assertFalse(contract.hasCreature(dead2));
+        assertTrue(contract.hasCreature(alive));
+        assertEquals(1, contract.getCreatureCount());
+    }
+
+    @Test
+    void testUnclaimedCreatureRemovedFromRegistry() {
+        Creature creature = factory.createNewCreature();
+        ProtectedRegistry.add(creature.getWurmId());
+
+        ContractCleanup.creatureDestroyed(creature.getWurmId());
+        ContractCleanup.process();
+
+        assertFalse(ProtectedRegistry.isProtected(creature.getWurmId()));
+    }
+
+    @Test
+    void testCreatureOfMissingContractReleased() {
+        Creature creature = factory.createNewCreature();
+        long missingContractId = 12345L << 24 | 3L << 8 | 2;
+        ProtectedRegistry.add(creature.getWurmId());
+        CreatureContracts.put(creature.getWurmId(), missingContractId);
+
+        ContractCleanup.creatureDestroyed(creature.getWurmId());
+        ContractCleanup.process();
+
+        assertFalse(ProtectedRegistry.isProtected(creature.getWurmId()));
+        assertEquals(CreatureContracts.NONE, CreatureContracts.getContractFor(creature.getWurmId()));
+        assertEquals(0, CreatureContracts.getCreatureCount(missingContractId));
+    }
+
+    @Test
+    void testCreatureMissingFromItsContractReleased() throws ContractFullException {
+        Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        AnimalContract contract = AnimalContract.getAnimalContract(contractItem);
+        Creature onContract = factory.createNewCreature();
+        Creature stale = factory.createNewCreature();
+        contract.addCreature(onContract);
+        ProtectedRegistry.add(stale.getWurmId());
+        CreatureContracts.put(stale.getWurmId(), contractItem.getWurmId());
+
+        ContractCleanup.creatureDestroyed(onContract.getWurmId());
+        ContractCleanup.creatureDestroyed(stale.getWurmId());
+        ContractCleanup.process();
+
+        assertFalse(ProtectedRegistry.isProtected(onContract.getWurmId()));
+        assertFalse(ProtectedRegistry.isProtected(stale.getWurmId()));
+        assertEquals(CreatureContracts.NONE, CreatureContracts.getContractFor(stale.getWurmId()));
+        assertEquals(0, AnimalContract.getAnimalContract(contractItem).getCreatureCount());
+    }
+}
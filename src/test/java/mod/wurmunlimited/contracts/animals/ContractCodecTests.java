@@ -0,0 +1,138 @@
+package mod.wurmunlimited.contracts.animals;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContractCodecTests {
+    // Ids in the layout Wurm uses, counter << 24 | serverId << 8 | type.
+    private static long id(long counter) {
+        return counter << 24 | 3L << 8 | 1;
+    }
+
+    private static String encodeV1(long[] ids) {
+        long[] sorted = Arrays.stream(ids).sorted().distinct().toArray();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        long previous = 0;
+        for (long id : sorted) {
+            long delta = id - previous;
+            previous = id;
+            while ((delta & ~0x7FL) != 0) {
+                bytes.write((int)((delta & 0x7F) | 0x80));
+                delta >>>= 7;
+            }
+            bytes.write((int)delta);
+        }
+        return ContractCodec.PREFIX_V1 + Base64.getEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    @Test
+    void testEmpty() {
+        assertEquals("", ContractCodec.encode(new long[0]));
+        assertArrayEquals(new long[0], ContractCodec.decode(""));
+    }
+
+    @Test
+    void testRoundTrip() {
+        long[] ids = new long[] { id(1234), id(99), id(123456789) };
+        String encoded = ContractCodec.encode(ids);
+
+        assertTrue(encoded.startsWith(ContractCodec.PREFIX));
+        assertFalse(ContractCodec.isLegacy(encoded));
+        assertArrayEquals(new long[] { id(99), id(1234), id(123456789) }, ContractCodec.decode(encoded));
+    }
+
+    @Test
+    void testRoundTripMixedLowBits() {
+        long[] ids = new long[] { 5L << 24 | 3L << 8 | 1, 5L << 24 | 7L << 8 | 1, 2L << 24 | 7L << 8 | 1, 9L << 24 | 3L << 8 | 1, 12345 };
+        long[] expected = Arrays.stream(ids).sorted().toArray();
+        assertArrayEquals(expected, ContractCodec.decode(ContractCodec.encode(ids)));
+    }
+
+    @Test
+    void testRoundTripNegative() {
+        long[] ids = new long[] { -10, id(5), Long.MIN_VALUE, Long.MAX_VALUE, 0 };
+        long[] expected = Arrays.stream(ids).sorted().toArray();
+        assertArrayEquals(expected, ContractCodec.decode(ContractCodec.encode(ids)));
+    }
+
+    @Test
+    void testFirstBinaryFormatReadable() {
+        long[] ids = new long[] { id(1234), id(99), id(123456789) };
+        String v1 = encodeV1(ids);
+        assertTrue(ContractCodec.isLegacy(v1));
+        assertArrayEquals(new long[] { id(99), id(1234), id(123456789) }, ContractCodec.decode(v1));
+    }
+
+    @Test
+    void testTruncatedGroupReturnsEmpty() {
+        String encoded = ContractCodec.encode(new long[] { id(1), id(2), id(3) });
+        byte[] bytes = Base64.getDecoder().decode(encoded.substring(ContractCodec.PREFIX.length()));
+        String truncated = ContractCodec.PREFIX + Base64.getEncoder().withoutPadding().encodeToString(Arrays.copyOf(bytes, bytes.length - 1));
+        assertArrayEquals(new long[0], ContractCodec.decode(truncated));
+    }
+
+    @Test
+    void testRoundTripRandom() {
+        Random random = new Random(7);
+        for (int n = 0; n < 100; n++) {
+            long[] ids = new long[random.nextInt(200) + 1];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = random.nextLong() & Long.MAX_VALUE;
+            }
+            long[] expected = Arrays.stream(ids).sorted().distinct().toArray();
+            assertArrayEquals(expected, ContractCodec.decode(ContractCodec.encode(ids)));
+        }
+    }
+
+    @Test
+    void testDuplicatesRemoved() {
+        assertArrayEquals(new long[] { 5, 9 }, ContractCodec.decode(ContractCodec.encode(new long[] { 9, 5, 9 })));
+    }
+
+    @Test
+    void testLegacyFormat() {
+        String legacy = "2561\n12801\n513";
+        assertTrue(ContractCodec.isLegacy(legacy));
+        assertArrayEquals(new long[] { 2561, 12801, 513 }, ContractCodec.decode(legacy));
+    }
+
+    @Test
+    void testLegacyInvalidLinesSkipped() {
+        assertArrayEquals(new long[] { 2561 }, ContractCodec.decode("abc\n\n2561"));
+    }
+
+    @Test
+    void testInvalidDataReturnsEmpty() {
+        assertArrayEquals(new long[0], ContractCodec.decode(ContractCodec.PREFIX + "!!!"));
+    }
+
+    @Test
+    void testSmallerThanLegacyFormat() {
+        long[] ids = new long[100];
+        StringBuilder legacy = new StringBuilder();
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = id(100000L + i * 3);
+            legacy.append(ids[i]).append("\n");
+        }
+
+        assertTrue(ContractCodec.encode(ids).length() * 3 < legacy.length());
+    }
+
+    @Test
+    void testHerdFewCharactersPerAnimal() {
+        long[] ids = new long[200];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = id(50000000L + i * 3);
+        }
+
+        String encoded = ContractCodec.encode(ids);
+        assertTrue(encoded.length() - ContractCodec.PREFIX.length() <= ids.length * 3 / 2 + 16, encoded);
+        assertTrue(encoded.length() < encodeV1(ids).length() / 3);
+    }
+}
@@ -0,0 +1,150 @@
+package mod.wurmunlimited.contracts.animals;
+
+import com.wurmonline.server.MiscConstants;
+import com.wurmonline.server.creatures.Creature;
+import com.wurmonline.server.items.Item;
+import com.wurmonline.server.players.Player;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static mod.wurmunlimited.Assert.receivedMessageContaining;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContractExpiryTests {
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private AnimalContractsObjectsFactory factory;
+    private ContractIndex index;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        factory = new AnimalContractsObjectsFactory();
+        AnimalContract.setStore(new InscriptionContractStore());
+        index = new ContractIndex(null);
+        AnimalContract.setIndex(index);
+        ProtectedRegistry.clear();
+        CreatureContracts.clear();
+        ContractExpiry.setDuration(DAY);
+        ContractExpiry.load(index, System.currentTimeMillis());
+    }
+
+    @AfterEach
+    void tearDown() {
+        ContractExpiry.setDuration(0);
+        ContractExpiry.setUpkeep(0);
+        ContractExpiry.load(index, System.currentTimeMillis());
+        AnimalContract.setIndex(new ContractIndex(null));
+    }
+
+    @Test
+    void testTermStartsWhenAnimalsAssigned() throws ContractFullException {
+        Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        long before = System.currentTimeMillis();
+        AnimalContract.getAnimalContract(contractItem).addCreature(factory.createNewCreature());
+
+        long deadline = index.getDeadline(contractItem.getWurmId());
+        assertTrue(deadline >= before + DAY && deadline <= System.currentTimeMillis() + DAY);
+        assertEquals(1, ContractExpiry.scheduledCount());
+    }
+
+    @Test
+    void testNoDeadlineWhenDisabled() throws ContractFullException {
+        ContractExpiry.setDuration(0);
+        Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        AnimalContract.getAnimalContract(contractItem).addCreature(factory.createNewCreature());
+
+        assertTrue(index.contains(contractItem.getWurmId()));
+        assertEquals(ContractIndex.NO_DEADLINE, index.getDeadline(contractItem.getWurmId()));
+        assertEquals(0, ContractExpiry.scheduledCount());
+    }
+
+    @Test
+    void testExpiredContractsReleaseAnimals() throws ContractFullException {
+        Item expiring = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        AnimalContract contract = AnimalContract.getAnimalContract(expiring);
+        Creature creature1 = factory.createNewCreature();
+        Creature creature2 = factory.createNewCreature();
+        contract.addCreature(creature1);
+        contract.addCreature(creature2);
+
+        long now = System.currentTimeMillis();
+        ContractExpiry.process(now + DAY / 2);
+        assertTrue(ProtectedRegistry.isProtected(creature1.getWurmId()));
+
+        ContractExpiry.process(now + DAY * 2);
+        assertFalse(ProtectedRegistry.isProtected(creature1.getWurmId()));
+        assertFalse(ProtectedRegistry.isProtected(creature2.getWurmId()));
+        assertEquals(CreatureContracts.NONE, CreatureContracts.getContractFor(creature1.getWurmId()));
+        assertEquals(0, AnimalContract.getAnimalContract(expiring).getCreatureCount());
+        assertFalse(index.contains(expiring.getWurmId()));
+        assertEquals(0, ContractExpiry.scheduledCount());
+    }
+
+    @Test
+    void testReassigningStartsNewTerm() throws ContractFullException {
+        Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        AnimalContract.getAnimalContract(contractItem).addCreature(factory.createNewCreature());
+        long first = index.getDeadline(contractItem.getWurmId());
+        ContractExpiry.process(first + DAY);
+
+        AnimalContract.getAnimalContract(contractItem).addCreature(factory.createNewCreature());
+        assertTrue(index.contains(contractItem.getWurmId()));
+        assertEquals(1, ContractExpiry.scheduledCount());
+    }
+
+    @Test
+    void testLoadStartsTermForContractsWithoutDeadline() {
+        index.add(123L);
+        long now = System.currentTimeMillis();
+        ContractExpiry.load(index, now);
+
+        assertEquals(now + DAY, index.getDeadline(123L));
+        assertEquals(1, ContractExpiry.scheduledCount());
+    }
+
+    @Test
+    void testLoadDropsDeadlinesWhenDisabled() {
+        index.add(123L, 456L);
+        ContractExpiry.setDuration(0);
+        ContractExpiry.load(index, System.currentTimeMillis());
+
+        assertEquals(ContractIndex.NO_DEADLINE, index.getDeadline(123L));
+        assertEquals(0, ContractExpiry.scheduledCount());
+    }
+
+    @Test
+    void testDestroyedContractUnscheduled() throws ContractFullException {
+        Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        AnimalContract.getAnimalContract(contractItem).addCreature(factory.createNewCreature());
+        assertEquals(1, ContractExpiry.scheduledCount());
+
+        AnimalContract.contractDestroyed(contractItem.getWurmId());
+        assertEquals(0, ContractExpiry.scheduledCount());
+    }
+
+    @Test
+    void testOwnerToldWhenContractExpires() throws ContractFullException {
+        Player player = factory.createNewPlayer();
+        Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        player.getInventory().insertItem(contractItem);
+        AnimalContract.getAnimalContract(contractItem).addCreature(factory.createNewCreature());
+
+        ContractExpiry.process(System.currentTimeMillis() + DAY * 2);
+        assertThat(player, receivedMessageContaining("Your animal contract has expired"));
+    }
+
+    @Test
+    void testLastOwnerToldWhenContractNotInInventory() throws ContractFullException {
+        Player player = factory.createNewPlayer();
+        Item contractItem = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        contractItem.setLastOwnerId(player.getWurmId());
+        assertEquals(MiscConstants.NOID, contractItem.getOwnerId());
+        AnimalContract.getAnimalContract(contractItem).addCreature(factory.createNewCreature());
+
+        ContractExpiry.process(System.currentTimeMillis() + DAY * 2);
+        assertThat(player, receivedMessageContaining("Your animal contract has expired"));
+    }
+}
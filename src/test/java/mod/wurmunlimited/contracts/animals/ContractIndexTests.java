@@ -0,0 +1,133 @@
+package mod.wurmunlimited.contracts.animals;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContractIndexTests {
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.createTempDirectory("animalcontracts").resolve("contractindex.bin");
+    }
+
+    private static long[] sorted(long[] ids) {
+        long[] copy = ids.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    @Test
+    void testMissingFileNeedsRebuild() {
+        assertFalse(new ContractIndex(file).load());
+    }
+
+    @Test
+    void testInMemoryIndexNeedsRebuild() {
+        ContractIndex index = new ContractIndex(null);
+        index.add(1);
+        assertFalse(index.load());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void testAddedIdsPersisted() {
+        ContractIndex index = new ContractIndex(file);
+        index.add(12L);
+        index.add(34L);
+        index.add(12L);
+
+        ContractIndex reloaded = new ContractIndex(file);
+        assertTrue(reloaded.load());
+        assertArrayEquals(new long[] { 12L, 34L }, sorted(reloaded.getContractIds()));
+    }
+
+    @Test
+    void testAppendAfterLoad() {
+        new ContractIndex(file).rebuild(new long[] { 1L, 2L });
+
+        ContractIndex index = new ContractIndex(file);
+        assertTrue(index.load());
+        index.add(3L);
+
+        ContractIndex reloaded = new ContractIndex(file);
+        assertTrue(reloaded.load());
+        assertArrayEquals(new long[] { 1L, 2L, 3L }, sorted(reloaded.getContractIds()));
+    }
+
+    @Test
+    void testRemovedIdsPersisted() {
+        ContractIndex index = new ContractIndex(file);
+        index.rebuild(new long[] { 1L, 2L, 3L });
+        index.remove(2L);
+        index.removeAll(new long[] { 3L, 4L });
+
+        ContractIndex reloaded = new ContractIndex(file);
+        assertTrue(reloaded.load());
+        assertArrayEquals(new long[] { 1L }, reloaded.getContractIds());
+    }
+
+    @Test
+    void testCorruptFileNeedsRebuild() throws IOException {
+        Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+        assertFalse(new ContractIndex(file).load());
+    }
+
+    @Test
+    void testDeadlinesPersisted() {
+        ContractIndex index = new ContractIndex(file);
+        index.add(1L, 1000L);
+        index.add(2L);
+        index.add(3L, 3000L);
+        index.setDeadlines(new long[] { 1L, 2L, 4L }, new long[] { 1500L, 2500L, 4500L });
+        index.remove(3L);
+
+        ContractIndex reloaded = new ContractIndex(file);
+        assertTrue(reloaded.load());
+        assertArrayEquals(new long[] { 1L, 2L }, sorted(reloaded.getContractIds()));
+        assertEquals(1500L, reloaded.getDeadline(1L));
+        assertEquals(2500L, reloaded.getDeadline(2L));
+        assertEquals(ContractIndex.NO_DEADLINE, reloaded.getDeadline(3L));
+        assertFalse(reloaded.contains(4L));
+    }
+
+    @Test
+    void testRebuildKeepsDeadlines() {
+        ContractIndex index = new ContractIndex(file);
+        index.add(1L, 1000L);
+        index.add(2L, 2000L);
+        index.rebuild(new long[] { 1L, 3L });
+
+        assertEquals(1000L, index.getDeadline(1L));
+        assertEquals(ContractIndex.NO_DEADLINE, index.getDeadline(2L));
+        assertEquals(ContractIndex.NO_DEADLINE, index.getDeadline(3L));
+    }
+
+    @Test
+    void testVersionOneFileUpgraded() throws IOException {
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.writeInt(0x41434958);
+            out.writeInt(1);
+            out.writeLong(1L);
+            out.writeLong(2L);
+        }
+
+        ContractIndex index = new ContractIndex(file);
+        assertTrue(index.load());
+        assertArrayEquals(new long[] { 1L, 2L }, sorted(index.getContractIds()));
+        index.add(3L, 3000L);
+
+        ContractIndex reloaded = new ContractIndex(file);
+        assertTrue(reloaded.load());
+        assertArrayEquals(new long[] { 1L, 2L, 3L }, sorted(reloaded.getContractIds()));
+        assertEquals(3000L, reloaded.getDeadline(3L));
+    }
+}
@@ -0,0 +1,87 @@
+package mod.wurmunlimited.contracts.animals;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContractMetricsTests {
+    private final ContractMetrics metrics = new ContractMetrics();
+
+    @BeforeEach
+    void setUp() {
+        ContractMetrics.setEnabled(true);
+        ContractMetrics.setSampleRate(1);
+        metrics.reset();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ContractMetrics.setEnabled(false);
+        ContractMetrics.setSampleRate(16);
+        metrics.reset();
+    }
+
+    @Test
+    void testDisabledDoesNotTime() {
+        ContractMetrics.setEnabled(false);
+        long start = ContractMetrics.startTimer();
+        assertEquals(ContractMetrics.NOT_TIMED, start);
+        ContractMetrics.record(ContractMetrics.loads, start);
+        assertEquals(0, metrics.getContractLoadSamples());
+    }
+
+    @Test
+    void testRecordsWhenEnabled() {
+        long start = ContractMetrics.startTimer();
+        assertNotEquals(ContractMetrics.NOT_TIMED, start);
+        ContractMetrics.record(ContractMetrics.saves, start);
+        assertEquals(1, metrics.getContractSaveSamples());
+    }
+
+    @Test
+    void testSampling() {
+        ContractMetrics.setSampleRate(1000);
+        int timed = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (ContractMetrics.startTimer() != ContractMetrics.NOT_TIMED) {
+                ++timed;
+            }
+        }
+        assertTrue(timed < 100, Integer.toString(timed));
+    }
+
+    @Test
+    void testPollAgeChecked() {
+        assertTrue(ContractMetrics.pollAgeChecked(true, ContractMetrics.NOT_TIMED));
+        assertFalse(ContractMetrics.pollAgeChecked(false, ContractMetrics.startTimer()));
+
+        assertEquals(2, metrics.getPollAgeCalls());
+        assertEquals(1, metrics.getPollAgeProtected());
+        assertEquals(1, ContractMetrics.pollAgeChecks.getCount());
+    }
+
+    @Test
+    void testSummary() {
+        ContractMetrics.pollAgeChecked(true, ContractMetrics.NOT_TIMED);
+        assertTrue(ContractMetrics.summary().startsWith("pollAge 1 calls (1 protected"), ContractMetrics.summary());
+    }
+
+    @Test
+    void testRegister() throws Exception {
+        ContractMetrics.register();
+        ContractMetrics.register();
+        ContractMetrics.pollAgeChecked(false, ContractMetrics.NOT_TIMED);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(ContractMetrics.OBJECT_NAME);
+        assertTrue(server.isRegistered(name));
+        assertEquals(1L, server.getAttribute(name, "PollAgeCalls"));
+        server.unregisterMBean(name);
+    }
+}
@@ -0,0 +1,36 @@
+package mod.wurmunlimited.contracts.animals;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContractRevisionsTests {
+    @Test
+    void testUnchangedContractsShareRevision() {
+        ContractRevisions revisions = new ContractRevisions();
+        assertEquals(revisions.get(1L), revisions.get(2L));
+    }
+
+    @Test
+    void testChangeOnlyAffectsThatContract() {
+        ContractRevisions revisions = new ContractRevisions();
+        String first = revisions.get(1L);
+        String second = revisions.get(2L);
+
+        revisions.changed(1L);
+        assertNotEquals(first, revisions.get(1L));
+        assertEquals(second, revisions.get(2L));
+    }
+
+    @Test
+    void testRevisionsNeverRepeat() {
+        ContractRevisions revisions = new ContractRevisions();
+        revisions.changed(2L);
+        String second = revisions.get(2L);
+        revisions.changed(1L);
+        revisions.changed(2L);
+
+        assertNotEquals(second, revisions.get(2L));
+        assertNotEquals(revisions.get(1L), revisions.get(2L));
+    }
+}
@@ -0,0 +1,119 @@
+package mod.wurmunlimited.contracts.animals;
+
+import com.wurmonline.server.creatures.Creature;
+import com.wurmonline.server.items.Item;
+import com.wurmonline.server.players.Player;
+import org.gotti.wurmunlimited.modloader.interfaces.MessagePolicy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static mod.wurmunlimited.Assert.receivedMessageContaining;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContractStatisticsTests {
+    private AnimalContractsObjectsFactory factory;
+    private Player gm;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        factory = new AnimalContractsObjectsFactory();
+        AnimalContract.setStore(new InscriptionContractStore());
+        AnimalContract.setIndex(new ContractIndex(null));
+        AnimalContract.setDelaySaves(false);
+        AnimalContract.setMaxCreatures(1000);
+        CreatureContracts.clear();
+        ProtectedRegistry.clear();
+        gm = factory.createNewPlayer();
+        gm.setPower((byte)ContractStatistics.MIN_POWER);
+    }
+
+    private Item contractWith(int animals) throws ContractFullException {
+        Item item = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        AnimalContract contract = AnimalContract.getAnimalContract(item);
+        for (int i = 0; i < animals; i++) {
+            contract.addCreature(factory.createNewCreature());
+        }
+        return item;
+    }
+
+    @Test
+    void testCreatureCounts() throws ContractFullException {
+        Item item = contractWith(3);
+        Item other = contractWith(0);
+        assertEquals(3, CreatureContracts.getCreatureCount(item.getWurmId()));
+
+        AnimalContract contract = AnimalContract.getAnimalContract(item);
+        Creature creature = factory.createNewCreature();
+        contract.addCreature(creature);
+        assertEquals(4, CreatureContracts.getCreatureCount(item.getWurmId()));
+        contract.removeCreature(creature);
+        assertEquals(3, CreatureContracts.getCreatureCount(item.getWurmId()));
+
+        long creatureId = contract.getCreatureIds()[0];
+        CreatureContracts.put(creatureId, other.getWurmId());
+        assertEquals(2, CreatureContracts.getCreatureCount(item.getWurmId()));
+        assertEquals(1, CreatureContracts.getCreatureCount(other.getWurmId()));
+    }
+
+    @Test
+    void testIgnoresOtherMessages() {
+        assertEquals(MessagePolicy.PASS, ContractStatistics.handle(factory.getCommunicator(gm), "hello"));
+        assertEquals(MessagePolicy.PASS, ContractStatistics.handle(factory.getCommunicator(gm), "#contractstatsx"));
+    }
+
+    @Test
+    void testPlayersCannotUse() {
+        Player player = factory.createNewPlayer();
+        assertEquals(MessagePolicy.DISCARD, ContractStatistics.handle(factory.getCommunicator(player), ContractStatistics.COMMAND));
+        assertEquals(0, factory.getCommunicator(player).getMessages().length);
+    }
+
+    @Test
+    void testReport() throws ContractFullException {
+        AnimalContract.setMaxCreatures(10);
+        Item full = contractWith(9);
+        contractWith(2);
+
+        assertEquals(MessagePolicy.DISCARD, ContractStatistics.handle(factory.getCommunicator(gm), ContractStatistics.COMMAND));
+        assertThat(gm, receivedMessageContaining("2 contracts, 11 animals assigned, 11 protected"));
+        assertThat(gm, receivedMessageContaining("1 contracts are at least 90% full"));
+        assertThat(gm, receivedMessageContaining("Fullest contracts: " + full.getWurmId() + " (9 animals, 90%)"));
+    }
+
+    @Test
+    void testFullInscriptionNearCapacity() throws ContractFullException {
+        Item item = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        AnimalContract contract = AnimalContract.getAnimalContract(item);
+        int animals = 0;
+        try {
+            while (animals < AnimalContract.getMaxCreatures()) {
+                contract.addCreature(factory.createNewCreature());
+                ++animals;
+            }
+        } catch (ContractFullException ignored) {}
+        assertTrue(animals < AnimalContract.getMaxCreatures() * ContractStatistics.NEAR_CAPACITY);
+
+        assertEquals(MessagePolicy.DISCARD, ContractStatistics.handle(factory.getCommunicator(gm), ContractStatistics.COMMAND));
+        assertThat(gm, receivedMessageContaining("1 contracts are at least 90% full"));
+    }
+
+    @Test
+    void testCsv() throws Exception {
+        Item item = contractWith(4);
+        Path path = Files.createTempDirectory("animalcontracts").resolve("report.csv");
+        ContractStatistics.writeCsv(ContractStatistics.snapshot(), path);
+
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertEquals("contract_id,owner_id,animals,max_animals,percent_full", lines.get(0));
+        assertTrue(lines.get(1).startsWith(item.getWurmId() + ","));
+        int percent = (int)(Math.max(0.004, new InscriptionContractStore().usage(item)) * 100);
+        assertTrue(lines.get(1).endsWith(",4,1000," + percent), lines.get(1));
+    }
+}
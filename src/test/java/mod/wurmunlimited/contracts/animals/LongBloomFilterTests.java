@@ -0,0 +1,59 @@
+package mod.wurmunlimited.contracts.animals;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongBloomFilterTests {
+    // Ids in the layout Wurm uses, counter << 24 | serverId << 8 | type.
+    private static long id(int i) {
+        return (long)i << 24 | 3L << 8 | 1;
+    }
+
+    @Test
+    void testNoFalseNegatives() {
+        Random random = new Random(6);
+        long[] ids = new long[10000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = random.nextLong();
+        }
+        LongBloomFilter filter = LongBloomFilter.of(ids);
+        for (long id : ids) {
+            assertTrue(filter.mightContain(id));
+        }
+    }
+
+    @Test
+    void testFalsePositiveRateAtCapacity() {
+        int capacity = 10000;
+        LongBloomFilter filter = new LongBloomFilter(capacity);
+        for (int i = 0; i < capacity; i++) {
+            filter.add(id(i));
+        }
+
+        int falsePositives = 0;
+        int checks = 100000;
+        for (int i = 0; i < checks; i++) {
+            if (filter.mightContain(id(capacity + i))) {
+                ++falsePositives;
+            }
+        }
+        assertTrue(falsePositives < checks * 0.08, Integer.toString(falsePositives));
+    }
+
+    @Test
+    void testNeedsRebuild() {
+        LongBloomFilter filter = new LongBloomFilter(2000);
+        assertFalse(filter.needsRebuild(2000));
+        assertTrue(filter.needsRebuild(2001));
+
+        for (int i = 0; i < 1000; i++) {
+            filter.removed();
+        }
+        assertFalse(filter.needsRebuild(10));
+        filter.removed();
+        assertTrue(filter.needsRebuild(10));
+    }
+}
@@ -0,0 +1,93 @@
+package mod.wurmunlimited.contracts.animals;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongHashSetTests {
+    @Test
+    void testAddContainsRemove() {
+        LongHashSet set = new LongHashSet();
+        assertFalse(set.contains(12345L));
+
+        assertTrue(set.add(12345L));
+        assertFalse(set.add(12345L));
+        assertTrue(set.contains(12345L));
+        assertEquals(1, set.size());
+
+        assertTrue(set.remove(12345L));
+        assertFalse(set.remove(12345L));
+        assertFalse(set.contains(12345L));
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    void testZeroKey() {
+        LongHashSet set = new LongHashSet();
+        assertFalse(set.contains(0));
+        assertTrue(set.add(0));
+        assertTrue(set.contains(0));
+        assertEquals(1, set.size());
+        assertArrayEquals(new long[] { 0 }, set.toArray());
+        assertTrue(set.remove(0));
+        assertFalse(set.contains(0));
+    }
+
+    @Test
+    void testGrowsPastInitialCapacity() {
+        LongHashSet set = new LongHashSet();
+        for (long i = 1; i <= 10000; i++) {
+            set.add(i << 8 | 1);
+        }
+
+        assertEquals(10000, set.size());
+        for (long i = 1; i <= 10000; i++) {
+            assertTrue(set.contains(i << 8 | 1));
+        }
+        assertFalse(set.contains(10001L << 8 | 1));
+    }
+
+    @Test
+    void testMatchesHashSetForRandomOperations() {
+        Random random = new Random(42);
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+
+        for (int i = 0; i < 100000; i++) {
+            long key = random.nextInt(2000) * 256L + 1;
+            switch (random.nextInt(3)) {
+                case 0:
+                    assertEquals(expected.add(key), set.add(key));
+                    break;
+                case 1:
+                    assertEquals(expected.remove(key), set.remove(key));
+                    break;
+                default:
+                    assertEquals(expected.contains(key), set.contains(key));
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        long[] values = set.toArray();
+        Arrays.sort(values);
+        assertArrayEquals(expected.stream().mapToLong(Long::longValue).sorted().toArray(), values);
+    }
+
+    @Test
+    void testClear() {
+        LongHashSet set = new LongHashSet();
+        set.add(1);
+        set.add(2);
+        set.add(0);
+        set.clear();
+
+        assertEquals(0, set.size());
+        assertFalse(set.contains(1));
+        assertFalse(set.contains(0));
+    }
+}
@@ -0,0 +1,65 @@
+package mod.wurmunlimited.contracts.animals;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongLongHashMapTests {
+    private static final long missing = -10L;
+
+    @Test
+    void testPutGetRemove() {
+        LongLongHashMap map = new LongLongHashMap(missing);
+        assertEquals(missing, map.get(5L));
+
+        assertEquals(missing, map.put(5L, 100L));
+        assertEquals(100L, map.put(5L, 200L));
+        assertEquals(200L, map.get(5L));
+        assertTrue(map.containsKey(5L));
+        assertEquals(1, map.size());
+
+        assertEquals(200L, map.remove(5L));
+        assertEquals(missing, map.remove(5L));
+        assertFalse(map.containsKey(5L));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void testZeroKey() {
+        LongLongHashMap map = new LongLongHashMap(missing);
+        map.put(0L, 7L);
+        assertEquals(7L, map.get(0L));
+        assertEquals(7L, map.remove(0L));
+        assertEquals(missing, map.get(0L));
+    }
+
+    @Test
+    void testMatchesHashMapForRandomOperations() {
+        Random random = new Random(11);
+        LongLongHashMap map = new LongLongHashMap(missing);
+        Map<Long, Long> expected = new HashMap<>();
+
+        for (int i = 0; i < 100000; i++) {
+            long key = random.nextInt(2000) * 256L + 1;
+            long value = random.nextInt(50);
+            switch (random.nextInt(3)) {
+                case 0:
+                    assertEquals(expected.getOrDefault(key, missing), (Long)map.put(key, value));
+                    expected.put(key, value);
+                    break;
+                case 1:
+                    assertEquals(expected.getOrDefault(key, missing), (Long)map.remove(key));
+                    expected.remove(key);
+                    break;
+                default:
+                    assertEquals(expected.getOrDefault(key, missing), (Long)map.get(key));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+    }
+}
@@ -0,0 +1,167 @@
+package mod.wurmunlimited.contracts.animals;
+
+import com.wurmonline.server.items.Item;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ManagementBmlCacheTests {
+    private AnimalContractsObjectsFactory factory;
+    private AtomicInteger builds;
+    private Item item;
+    private AnimalContract contract;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        factory = new AnimalContractsObjectsFactory();
+        ManagementBmlCache.clear();
+        ManagementBmlCache.setMaxSize(128);
+        builds = new AtomicInteger();
+        item = factory.createNewItem(AnimalContractsMod.getContractTemplateId());
+        contract = AnimalContract.getAnimalContract(item);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ManagementBmlCache.clear();
+    }
+
+    private String build(int questionId) {
+        builds.incrementAndGet();
+        return "passthrough{id=\"id\";text=\"" + questionId + "\"}";
+    }
+
+    private String get(String key, int questionId) {
+        return ManagementBmlCache.get(contract, item.getWurmId(), key, questionId, id -> new ManagementBmlCache.Page(build(id), new long[0])).getBml();
+    }
+
+    @Test
+    void testCachedAndIdReplaced() {
+        assertEquals(build(5), get("a", 5));
+        assertEquals(build(6), get("a", 6));
+        assertEquals(3, builds.get());
+        assertEquals(1, ManagementBmlCache.size());
+    }
+
+    @Test
+    void testKeysSeparate() {
+        get("a", 1);
+        get("b", 1);
+        get("a", 1);
+        assertEquals(2, builds.get());
+    }
+
+    @Test
+    void testContractChangedRebuilds() {
+        get("a", 1);
+        ManagementBmlCache.contractChanged(item.getWurmId());
+        get("a", 1);
+        assertEquals(2, builds.get());
+    }
+
+    @Test
+    void testCreatureChangedRebuilds() throws ContractFullException {
+        contract.addCreature(factory.createNewCreature());
+        long creatureId = contract.getCreatureIds()[0];
+        get("a", 1);
+        ManagementBmlCache.creatureChanged(creatureId);
+        get("a", 1);
+        assertEquals(2, builds.get());
+
+        ManagementBmlCache.creatureChanged(factory.createNewCreature().getWurmId());
+        get("a", 1);
+        assertEquals(2, builds.get());
+    }
+
+    @Test
+    void testContractMutationRebuilds() throws ContractFullException {
+        get("a", 1);
+        contract.addCreature(factory.createNewCreature());
+        get("a", 1);
+        assertEquals(2, builds.get());
+    }
+
+    @Test
+    void testNewContractInstanceRebuilds() {
+        get("a", 1);
+        AnimalContract.invalidate(item.getWurmId());
+        contract = AnimalContract.getAnimalContract(item);
+        get("a", 1);
+        assertEquals(2, builds.get());
+    }
+
+    @Test
+    void testCreatureIdsCachedWithBml() {
+        long[] ids = new long[] { 3, 1, 2 };
+        ManagementBmlCache.get(contract, item.getWurmId(), "a", 1, id -> new ManagementBmlCache.Page(build(id), ids));
+        ManagementBmlCache.Page page = ManagementBmlCache.get(contract, item.getWurmId(), "a", 2, id -> new ManagementBmlCache.Page(build(id), new long[] { 1, 2, 3 }));
+
+        assertEquals(1, builds.get());
+        assertEquals(build(2), page.getBml());
+        assertArrayEquals(ids, page.getCreatureIds());
+    }
+
+    @Test
+    void testNotCachedWithoutPlaceholder() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals("fixed", ManagementBmlCache.get(contract, item.getWurmId(), "a", 1, id -> {
+                builds.incrementAndGet();
+                return new ManagementBmlCache.Page("fixed", new long[0]);
+            }).getBml());
+        }
+        assertEquals(0, ManagementBmlCache.size());
+    }
+
+    @Test
+    void testDisabled() {
+        ManagementBmlCache.setMaxSize(0);
+        get("a", 1);
+        get("a", 1);
+        assertEquals(2, builds.get());
+        assertEquals(0, ManagementBmlCache.size());
+    }
+
+    @Test
+    void testHitRate() {
+        long hits = ManagementBmlCache.getHits();
+        long misses = ManagementBmlCache.getMisses();
+        get("a", 1);
+        get("a", 1);
+        get("a", 1);
+        assertEquals(hits + 2, ManagementBmlCache.getHits());
+        assertEquals(misses + 1, ManagementBmlCache.getMisses());
+    }
+
+    @Test
+    void testVersionsOnlyKeptForCachedContracts() {
+        for (long contractId = 1; contractId <= 1000; contractId++) {
+            ManagementBmlCache.contractChanged(contractId << 24 | 3L << 8 | 2);
+        }
+        assertEquals(0, ManagementBmlCache.versionCount());
+
+        ManagementBmlCache.setMaxSize(2);
+        for (long contractId = 1; contractId <= 10; contractId++) {
+            ManagementBmlCache.get(contract, contractId << 24 | 3L << 8 | 2, "a" + contractId, 1, id -> new ManagementBmlCache.Page(build(id), new long[0]));
+            ManagementBmlCache.contractChanged(contractId << 24 | 3L << 8 | 2);
+        }
+        assertEquals(2, ManagementBmlCache.size());
+        assertEquals(2, ManagementBmlCache.versionCount());
+    }
+
+    @Test
+    void testChangedWhileBuildingNotCached() {
+        ManagementBmlCache.get(contract, item.getWurmId(), "a", 1, id -> {
+            ManagementBmlCache.contractChanged(item.getWurmId());
+            return new ManagementBmlCache.Page(build(id), new long[0]);
+        });
+        assertEquals(0, ManagementBmlCache.size());
+
+        get("a", 1);
+        get("a", 1);
+        assertEquals(2, builds.get());
+    }
+}
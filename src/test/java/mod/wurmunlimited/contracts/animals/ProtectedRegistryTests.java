@@ -0,0 +1,223 @@
+package mod.wurmunlimited.contracts.animals;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProtectedRegistryTests {
+    private static final int stableCount = 1000;
+    private static final int churnCount = 1000;
+
+    @BeforeEach
+    void setUp() {
+        ProtectedRegistry.setShardCount(1);
+        ProtectedRegistry.setFilterEnabled(true);
+        ProtectedRegistry.clear();
+    }
+
+    // Ids in the layout Wurm uses, counter << 24 | serverId << 8 | type.
+    private static long id(long counter) {
+        return counter << 24 | 3L << 8 | 1;
+    }
+
+    private static long stableId(int i) {
+        return id(i);
+    }
+
+    private static long churnId(int i) {
+        return id(stableCount + i);
+    }
+
+    private static long absentId(int i) {
+        return id(stableCount + churnCount + i);
+    }
+
+    @Test
+    void testAddRemove() {
+        ProtectedRegistry.add(stableId(1));
+        assertTrue(ProtectedRegistry.isProtected(stableId(1)));
+        assertEquals(1, ProtectedRegistry.size());
+
+        ProtectedRegistry.remove(stableId(1));
+        assertFalse(ProtectedRegistry.isProtected(stableId(1)));
+        assertEquals(0, ProtectedRegistry.size());
+    }
+
+    @Test
+    void testAddAllRemoveAll() {
+        long[] ids = new long[] { stableId(1), stableId(2), stableId(3) };
+        ProtectedRegistry.addAll(ids);
+        for (long id : ids)
+            assertTrue(ProtectedRegistry.isProtected(id));
+
+        ProtectedRegistry.removeAll(new long[] { stableId(1), stableId(3) });
+        assertFalse(ProtectedRegistry.isProtected(stableId(1)));
+        assertTrue(ProtectedRegistry.isProtected(stableId(2)));
+        assertFalse(ProtectedRegistry.isProtected(stableId(3)));
+    }
+
+    @Test
+    void testConcurrentAddRemoveWithContains() throws InterruptedException, ExecutionException, TimeoutException {
+        long[] stable = new long[stableCount];
+        for (int i = 0; i < stableCount; i++)
+            stable[i] = stableId(i);
+        ProtectedRegistry.addAll(stable);
+
+        int writers = 4;
+        int readers = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(writers + readers);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger failures = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int w = 0; w < writers; w++) {
+            int offset = w;
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 20000; i++) {
+                    long id = churnId((random.nextInt(churnCount / writers) * writers) + offset);
+                    if (random.nextBoolean())
+                        ProtectedRegistry.add(id);
+                    else
+                        ProtectedRegistry.remove(id);
+                }
+                return null;
+            }));
+        }
+
+        for (int r = 0; r < readers; r++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (running.get()) {
+                    int i = random.nextInt(stableCount);
+                    if (!ProtectedRegistry.isProtected(stableId(i)))
+                        failures.incrementAndGet();
+                    if (ProtectedRegistry.isProtected(absentId(i)))
+                        failures.incrementAndGet();
+                    ProtectedRegistry.isProtected(churnId(random.nextInt(churnCount)));
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (int i = 0; i < writers; i++)
+            futures.get(i).get(60, TimeUnit.SECONDS);
+        running.set(false);
+        for (Future<?> future : futures)
+            future.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals(0, failures.get());
+        for (long id : stable)
+            assertTrue(ProtectedRegistry.isProtected(id));
+
+        int churned = 0;
+        for (int i = 0; i < churnCount; i++) {
+            if (ProtectedRegistry.isProtected(churnId(i)))
+                ++churned;
+        }
+        assertEquals(stableCount + churned, ProtectedRegistry.size());
+    }
+
+    @Test
+    void testSetShardCountKeepsIds() {
+        for (int i = 0; i < stableCount; i++) {
+            ProtectedRegistry.add(stableId(i));
+        }
+        ProtectedRegistry.setShardCount(64);
+
+        assertEquals(64, ProtectedRegistry.getShardCount());
+        assertEquals(stableCount, ProtectedRegistry.size());
+        for (int i = 0; i < stableCount; i++) {
+            assertTrue(ProtectedRegistry.isProtected(stableId(i)));
+        }
+        ProtectedRegistry.remove(stableId(0));
+        assertFalse(ProtectedRegistry.isProtected(stableId(0)));
+        ProtectedRegistry.clear();
+        assertEquals(64, ProtectedRegistry.getShardCount());
+    }
+
+    @Test
+    void testWithoutFilter() {
+        ProtectedRegistry.setFilterEnabled(false);
+        assertFalse(ProtectedRegistry.isFilterEnabled());
+        ProtectedRegistry.add(stableId(1));
+        assertTrue(ProtectedRegistry.isProtected(stableId(1)));
+        assertFalse(ProtectedRegistry.isProtected(stableId(2)));
+
+        ProtectedRegistry.setFilterEnabled(true);
+        assertTrue(ProtectedRegistry.isProtected(stableId(1)));
+        assertFalse(ProtectedRegistry.isProtected(stableId(2)));
+    }
+
+    @Test
+    void testFilterRebuiltAsSetGrowsAndShrinks() {
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 5000; i++) {
+                ProtectedRegistry.add(churnId(i));
+            }
+            for (int i = 0; i < 5000; i++) {
+                assertTrue(ProtectedRegistry.isProtected(churnId(i)));
+            }
+            for (int i = 0; i < 5000; i += 2) {
+                ProtectedRegistry.remove(churnId(i));
+            }
+            for (int i = 0; i < 5000; i++) {
+                assertEquals(i % 2 == 1, ProtectedRegistry.isProtected(churnId(i)));
+            }
+        }
+    }
+
+    @Test
+    void testFalsePositiveMetrics() {
+        ContractMetrics.setEnabled(true);
+        try {
+            ProtectedRegistry.resetCounters();
+            for (int i = 0; i < stableCount; i++) {
+                ProtectedRegistry.add(stableId(i));
+            }
+            for (int i = 0; i < stableCount; i++) {
+                assertTrue(ProtectedRegistry.isProtected(stableId(i)));
+            }
+            for (int i = 0; i < 10000; i++) {
+                assertFalse(ProtectedRegistry.isProtected(absentId(i)));
+            }
+
+            assertEquals(stableCount + 10000, ProtectedRegistry.getLookups());
+            assertTrue(ProtectedRegistry.getFalsePositiveRate() < 0.08, Double.toString(ProtectedRegistry.getFalsePositiveRate()));
+            assertEquals((double)ProtectedRegistry.getFalsePositives() / 10000, ProtectedRegistry.getFalsePositiveRate(), 1e-9);
+        } finally {
+            ContractMetrics.setEnabled(false);
+            ProtectedRegistry.resetCounters();
+        }
+    }
+
+    @Test
+    void testContainsNotCounted() {
+        ContractMetrics.setEnabled(true);
+        try {
+            ProtectedRegistry.resetCounters();
+            ProtectedRegistry.add(stableId(0));
+
+            assertTrue(ProtectedRegistry.contains(stableId(0)));
+            assertFalse(ProtectedRegistry.contains(absentId(0)));
+
+            assertEquals(0, ProtectedRegistry.getLookups());
+            assertEquals(0, ProtectedRegistry.getFalsePositives());
+        } finally {
+            ContractMetrics.setEnabled(false);
+            ProtectedRegistry.resetCounters();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package mod.wurmunlimited.contracts.animals;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedLongSetTests {
+    private static final long SERVER_ID = 3;
+
+    // Ids in the layout Wurm uses, counter << 24 | serverId << 8 | type.
+    private static long id(long counter) {
+        return counter << 24 | SERVER_ID << 8 | 1;
+    }
+
+    @Test
+    void testInvalidShardCount() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardedLongSet(0));
+        assertThrows(IllegalArgumentException.class, () -> new ShardedLongSet(3));
+    }
+
+    @Test
+    void testConsecutiveIdsShareShard() {
+        int mask = 63;
+        long first = id(1000L << ShardedLongSet.BLOCK_BITS);
+        long next = id((1000L << ShardedLongSet.BLOCK_BITS) + 1);
+        assertEquals(ShardedLongSet.shardFor(first, mask), ShardedLongSet.shardFor(next, mask));
+        assertNotEquals(ShardedLongSet.shardFor(first, mask), ShardedLongSet.shardFor(id(1001L << ShardedLongSet.BLOCK_BITS), mask));
+    }
+
+    @Test
+    void testRealIdsSpreadAcrossShards() {
+        int shardCount = 64;
+        int[] counts = new int[shardCount];
+        int blocks = shardCount * 4;
+        for (long counter = 1; counter <= (long)blocks << ShardedLongSet.BLOCK_BITS; counter++) {
+            ++counts[ShardedLongSet.shardFor(id(counter), shardCount - 1)];
+        }
+        int perShard = (blocks << ShardedLongSet.BLOCK_BITS) / shardCount;
+        for (int count : counts) {
+            assertTrue(Math.abs(count - perShard) <= 1 << ShardedLongSet.BLOCK_BITS, Arrays.toString(counts));
+        }
+    }
+
+    @Test
+    void testServerIdDoesNotPickShard() {
+        int mask = 255;
+        long counter = 12345;
+        assertEquals(ShardedLongSet.shardFor(counter << 24 | id(1), mask), ShardedLongSet.shardFor(counter << 24 | 60L << 8 | 1, mask));
+    }
+
+    @Test
+    void testMatchesHashSet() {
+        Random random = new Random(5);
+        for (int shards : new int[] { 1, 16 }) {
+            ShardedLongSet set = new ShardedLongSet(shards);
+            Set<Long> expected = new HashSet<>();
+            for (int i = 0; i < 20000; i++) {
+                long id = id(random.nextInt(5000));
+                if (random.nextBoolean()) {
+                    assertEquals(expected.add(id), set.add(id));
+                } else {
+                    assertEquals(expected.remove(id), set.remove(id));
+                }
+            }
+            assertEquals(expected.size(), set.size());
+            for (long id : expected) {
+                assertTrue(set.contains(id));
+            }
+            long[] all = set.toArray();
+            assertEquals(expected.size(), all.length);
+            assertEquals(expected.size(), Arrays.stream(all).distinct().count());
+        }
+    }
+
+    @Test
+    void testCopyForWriteLeavesOriginal() {
+        ShardedLongSet original = new ShardedLongSet(8);
+        for (long i = 0; i < 1000; i++) {
+            original.add(id(i));
+        }
+
+        ShardedLongSet copy = original.copyForWrite();
+        copy.add(id(5000));
+        copy.remove(id(1));
+
+        assertFalse(original.contains(id(5000)));
+        assertTrue(original.contains(id(1)));
+        assertEquals(1000, original.size());
+        assertTrue(copy.contains(id(5000)));
+        assertFalse(copy.contains(id(1)));
+        assertEquals(1000, copy.size());
+    }
+
+    @Test
+    void testZeroId() {
+        ShardedLongSet set = new ShardedLongSet(4);
+        assertTrue(set.add(0));
+        assertTrue(set.contains(0));
+        assertTrue(set.remove(0));
+        assertFalse(set.contains(0));
+    }
+}
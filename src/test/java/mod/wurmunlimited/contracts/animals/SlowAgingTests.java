@@ -0,0 +1,116 @@
+package mod.wurmunlimited.contracts.animals;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlowAgingTests {
+    private static final long AGE_STEP = 2419200;
+    private static final long POLL = 3607;
+    private static final int STEPS = 500;
+
+    /**
+     * Ages like pollAge, by the time since lastPolledAge, calling SlowAging the way the woven method does.
+     */
+    private static class Status {
+        private final boolean proportional;
+        long lastPolledAge;
+        long slowedUntil;
+        int age;
+
+        Status(boolean proportional) {
+            this.proportional = proportional;
+        }
+
+        void poll(long now, boolean slowed) {
+            if (SlowAging.isEnabled()) {
+                if (slowed) {
+                    long polled = lastPolledAge;
+                    lastPolledAge = SlowAging.lastPolledAge(polled, slowedUntil, now);
+                    slowedUntil = SlowAging.slowedUntil(polled, slowedUntil, now);
+                } else {
+                    slowedUntil = 0;
+                }
+            }
+
+            if (lastPolledAge == 0) {
+                lastPolledAge = now;
+            } else if (proportional) {
+                long steps = (now - lastPolledAge) / AGE_STEP;
+                age += steps;
+                lastPolledAge += steps * AGE_STEP;
+            } else if (now - lastPolledAge > AGE_STEP) {
+                ++age;
+                lastPolledAge = now;
+            }
+        }
+    }
+
+    private static int ageAfter(boolean proportional, boolean slowed) {
+        Status status = new Status(proportional);
+        long start = 1000000;
+        for (long now = start; now < start + AGE_STEP * STEPS; now += POLL) {
+            status.poll(now, slowed);
+        }
+        return status.age;
+    }
+
+    @AfterEach
+    void tearDown() {
+        SlowAging.setInterval(0);
+    }
+
+    @Test
+    void testDisabledByDefault() {
+        assertFalse(SlowAging.isEnabled());
+    }
+
+    @Test
+    void testAgesIntervalTimesSlower() {
+        for (boolean proportional : new boolean[] { true, false }) {
+            int normal = ageAfter(proportional, false);
+            SlowAging.setInterval(4);
+            int slowed = ageAfter(proportional, true);
+            SlowAging.setInterval(0);
+
+            assertTrue(normal >= STEPS * 0.99, Integer.toString(normal));
+            assertTrue(Math.abs(slowed - normal / 4.0) <= normal * 0.01, normal + " " + slowed);
+        }
+    }
+
+    @Test
+    void testIntervalOneAgesNormally() {
+        int normal = ageAfter(true, false);
+        SlowAging.setInterval(1);
+        assertEquals(normal, ageAfter(true, true));
+    }
+
+    @Test
+    void testUnprotectedTimeNotSlowed() {
+        SlowAging.setInterval(4);
+        Status status = new Status(true);
+        long now = 1000000;
+        status.poll(now, true);
+        status.poll(now += AGE_STEP * 4, true);
+        assertEquals(1, status.age);
+
+        status.poll(now += AGE_STEP * 4, false);
+        assertEquals(5, status.age);
+        assertEquals(0, status.slowedUntil);
+
+        status.poll(now += AGE_STEP * 4, true);
+        assertEquals(6, status.age);
+    }
+
+    @Test
+    void testLastPolledAgeUnsetLeftAlone() {
+        SlowAging.setInterval(4);
+        assertEquals(0, SlowAging.lastPolledAge(0, 0, 5000));
+    }
+
+    @Test
+    void testNegativeIntervalRejected() {
+        assertThrows(IllegalArgumentException.class, () -> SlowAging.setInterval(-1));
+    }
+}
@@ -0,0 +1,86 @@
+package mod.wurmunlimited.contracts.animals;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerWheelTests {
+    private static final long TICK = 100;
+    private static final long START = 1000000;
+
+    private static long[] sorted(long[] ids) {
+        long[] copy = ids.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    @Test
+    void testFiresOnceDeadlinePassed() {
+        TimerWheel wheel = new TimerWheel(16, TICK, START);
+        wheel.schedule(1, START + 250);
+        wheel.schedule(2, START + 550);
+
+        assertArrayEquals(new long[0], wheel.advance(START + 200));
+        assertArrayEquals(new long[] { 1 }, wheel.advance(START + 300));
+        assertFalse(wheel.isScheduled(1));
+        assertArrayEquals(new long[0], wheel.advance(START + 500));
+        assertArrayEquals(new long[] { 2 }, wheel.advance(START + 600));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testDeadlineSeveralTurnsAway() {
+        TimerWheel wheel = new TimerWheel(4, TICK, START);
+        long deadline = START + 4 * TICK * 3 + 50;
+        wheel.schedule(1, deadline);
+
+        for (long now = START; now < deadline; now += TICK) {
+            assertArrayEquals(new long[0], wheel.advance(now));
+        }
+        assertArrayEquals(new long[] { 1 }, wheel.advance(deadline + TICK));
+    }
+
+    @Test
+    void testCancelAndReschedule() {
+        TimerWheel wheel = new TimerWheel(16, TICK, START);
+        wheel.schedule(1, START + 200);
+        wheel.schedule(2, START + 200);
+        assertTrue(wheel.cancel(2));
+        assertFalse(wheel.cancel(2));
+        wheel.schedule(1, START + 900);
+
+        assertArrayEquals(new long[0], wheel.advance(START + 500));
+        assertArrayEquals(new long[] { 1 }, wheel.advance(START + 1000));
+    }
+
+    @Test
+    void testPassedDeadlineFiresNextTick() {
+        TimerWheel wheel = new TimerWheel(16, TICK, START);
+        wheel.schedule(1, START - 5000);
+        assertTrue(wheel.isScheduled(1));
+        assertArrayEquals(new long[] { 1 }, wheel.advance(START + TICK));
+    }
+
+    @Test
+    void testLongGapFiresEverythingDue() {
+        TimerWheel wheel = new TimerWheel(8, TICK, START);
+        for (int i = 1; i <= 20; i++) {
+            wheel.schedule(i, START + i * 70);
+        }
+        wheel.schedule(100, START + 100000);
+
+        long[] fired = sorted(wheel.advance(START + 50000));
+        assertEquals(20, fired.length);
+        assertEquals(1, fired[0]);
+        assertEquals(20, fired[19]);
+        assertTrue(wheel.isScheduled(100));
+    }
+
+    @Test
+    void testInvalidSlotCount() {
+        assertThrows(IllegalArgumentException.class, () -> new TimerWheel(3, TICK, START));
+        assertThrows(IllegalArgumentException.class, () -> new TimerWheel(8, 0, START));
+    }
+}
@@ -0,0 +1,80 @@
+package mod.wurmunlimited.contracts.animals;
+
+import com.wurmonline.server.creatures.Creature;
+import com.wurmonline.server.creatures.Traits;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraitStringsTests {
+    // The per-bit loop the table replaced.
+    private static String[] renderLoop(long traits, double knowledge) {
+        StringBuilder sb = new StringBuilder();
+        String countString = "";
+        int count = 0;
+        for (int i = 0; i < 64; i++) {
+            if ((traits >> i & 1L) == 1L && knowledge > i) {
+                String traitString = Traits.getTraitString(i);
+                if (!traitString.isEmpty()) {
+                    sb.append(traitString).append("\n");
+                    ++count;
+                }
+            } else if (knowledge <= i) {
+                sb.append(TraitStrings.NOT_ENOUGH_SKILL).append("\n");
+                countString = count + "?";
+                break;
+            }
+        }
+        if (sb.length() == 0)
+            return new String[] { "0", "None" };
+
+        if (countString.isEmpty())
+            countString = Integer.toString(count);
+
+        sb.deleteCharAt(sb.length() - 1);
+        return new String[] { countString, sb.toString() };
+    }
+
+    @Test
+    void testNoTraits() {
+        assertArrayEquals(new String[] { "0", "None" }, TraitStrings.render(0, 100));
+    }
+
+    @Test
+    void testVisibleMask() {
+        assertEquals(0, TraitStrings.getVisibleMask(0));
+        assertEquals(0, TraitStrings.getVisibleMask(-5));
+        assertEquals(1, TraitStrings.getVisibleMask(0.5));
+        assertEquals(0b11, TraitStrings.getVisibleMask(2));
+        assertEquals(0b111, TraitStrings.getVisibleMask(2.1));
+        assertEquals(-1L, TraitStrings.getVisibleMask(63.5));
+        assertEquals(-1L, TraitStrings.getVisibleMask(100));
+    }
+
+    @Test
+    void testMatchesLoop() {
+        Random random = new Random(11);
+        double[] knowledgeLevels = new double[] { 0, 0.5, 1, 5, 10.5, 20, 33.3, 63, 63.5, 64, 80 };
+        for (int n = 0; n < 500; n++) {
+            long traits = random.nextLong();
+            for (double knowledge : knowledgeLevels) {
+                assertArrayEquals(renderLoop(traits, knowledge), TraitStrings.render(traits, knowledge),
+                        Long.toBinaryString(traits) + " at " + knowledge);
+            }
+        }
+    }
+
+    @Test
+    void testCreatureMask() throws Exception {
+        Creature creature = new AnimalContractsObjectsFactory().createNewCreature();
+        creature.getStatus().setTraitBit(3, true);
+        creature.getStatus().setTraitBit(17, true);
+
+        assertEquals(1L << 3 | 1L << 17, TraitStrings.getTraitMask(creature) & (1L << 3 | 1L << 17));
+        for (int i = 0; i < 64; i++) {
+            assertEquals(creature.hasTrait(i), (TraitStrings.getTraitMask(creature) >> i & 1L) == 1L);
+        }
+    }
+}